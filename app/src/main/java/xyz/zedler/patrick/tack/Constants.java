@@ -20,6 +20,7 @@
 package xyz.zedler.patrick.tack;
 
 import androidx.appcompat.app.AppCompatDelegate;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers;
 
 public final class Constants {
 
@@ -30,6 +31,8 @@ public final class Constants {
   public static final int TEMPO_MAX = 600;
   public static final int BEATS_MAX = 20;
   public static final int SUBS_MAX = 10;
+  public static final int LAYERS_MAX = PolyrhythmLayers.LAYERS_MAX;
+  public static final int LAYER_PULSES_MAX = PolyrhythmLayers.LAYER_PULSES_MAX;
   public static final int TIMER_MAX = 399;
   public static final int INCREMENTAL_INTERVAL_MAX = 399;
   public static final String SONG_ID_DEFAULT = "default";
@@ -50,8 +53,10 @@ public final class Constants {
 
     // Metronome
     public final static String TEMPO = "tempo";
+    public final static String TEMPO_DECIMALS = "tempo_decimals";
     public final static String BEATS = "beats";
     public final static String SUBDIVISIONS = "subdivisions";
+    public final static String LAYERS = "polyrhythm_layers";
     public final static String BEAT_MODE = "beat_mode";
     public final static String ACTIVE_BEAT = "highlight_active_beat";
     public final static String SHOW_ELAPSED = "show_elapsed";
@@ -62,8 +67,18 @@ public final class Constants {
     public final static String KEEP_AWAKE = "keep_screen_awake";
     public final static String SOUND = "sound";
     public final static String LATENCY = "latency_offset";
+    public final static String LATENCY_AUTO = "latency_auto";
+    public final static String LATENCY_TRIM = "latency_trim";
     public final static String IGNORE_FOCUS = "ignore_focus";
     public final static String GAIN = "gain";
+    public final static String GAIN_STRONG = "gain_strong";
+    public final static String GAIN_NORMAL = "gain_normal";
+    public final static String GAIN_SUB = "gain_sub";
+    public final static String FRAME_CLOCK = "frame_clock";
+    public final static String WARM_TRACK = "warm_audio_track";
+    public final static String LOW_LATENCY = "low_latency";
+    public final static String POLYPHONY = "max_polyphony";
+    public final static String AUDIO_DEBUG = "audio_debug";
     public final static String BIG_LOGO = "big_logo";
     public final static String TEMPO_INPUT_KEYBOARD = "tempo_input_keyboard";
     public final static String TEMPO_TAP_INSTANT = "tempo_tap_instant";
@@ -75,6 +90,7 @@ public final class Constants {
     public final static String INCREMENTAL_INTERVAL = "incremental_interval";
     public final static String INCREMENTAL_UNIT = "incremental_unit";
     public final static String INCREMENTAL_LIMIT = "incremental_limit";
+    public final static String INCREMENTAL_CURVE = "incremental_curve";
     public final static String TIMER_DURATION = "timer_duration";
     public final static String TIMER_UNIT = "timer_unit";
     public final static String MUTE_PLAY = "mute_play";
@@ -97,10 +113,13 @@ public final class Constants {
 
     // Metronome
     public final static int TEMPO = 120;
+    public final static int TEMPO_DECIMALS = 0;
     public final static String BEATS = String.join(
         ",", TICK_TYPE.STRONG, TICK_TYPE.NORMAL, TICK_TYPE.NORMAL, TICK_TYPE.NORMAL
     );
     public final static String SUBDIVISIONS = TICK_TYPE.MUTED;
+    // polyrhythm layers as pulses:sound, empty if no layer is active
+    public final static String LAYERS = "";
     public final static String BEAT_MODE = Constants.BEAT_MODE.ALL;
     public final static boolean ACTIVE_BEAT = false;
     public final static boolean SHOW_ELAPSED = false;
@@ -111,8 +130,18 @@ public final class Constants {
     public final static String KEEP_AWAKE = Constants.KEEP_AWAKE.WHILE_PLAYING;
     public final static String SOUND = Constants.SOUND.SINE;
     public final static long LATENCY = 100;
+    public final static boolean LATENCY_AUTO = false;
+    public final static long LATENCY_TRIM = 0;
     public final static boolean IGNORE_FOCUS = false;
     public final static int GAIN = 0;
+    public final static int GAIN_STRONG = 0;
+    public final static int GAIN_NORMAL = 0;
+    public final static int GAIN_SUB = 0;
+    public final static boolean FRAME_CLOCK = false;
+    public final static boolean WARM_TRACK = true;
+    public final static boolean LOW_LATENCY = false;
+    public final static int POLYPHONY = 4;
+    public final static boolean AUDIO_DEBUG = false;
     public final static boolean BIG_LOGO = false;
     public final static boolean TEMPO_INPUT_KEYBOARD = false;
     public final static boolean TEMPO_TAP_INSTANT = true;
@@ -124,6 +153,7 @@ public final class Constants {
     public final static int INCREMENTAL_INTERVAL = 1;
     public final static String INCREMENTAL_UNIT = UNIT.BARS;
     public final static int INCREMENTAL_LIMIT = 0;
+    public final static String INCREMENTAL_CURVE = CURVE.STEP;
     public final static int TIMER_DURATION = 0;
     public final static String TIMER_UNIT = UNIT.BARS;
     public final static int MUTE_PLAY = 0;
@@ -146,6 +176,9 @@ public final class Constants {
     public final static String BEATBOXING_2 = "beatboxing_2";
     public final static String HANDS = "hands";
     public final static String FOLDING = "folding";
+    public final static String CUSTOM = "custom";
+    // polyrhythm layers are played with these sounds in the order of the layers
+    public final static String[] LAYERS = {WOOD, HANDS};
   }
 
   public final static class BEAT_MODE {
@@ -185,6 +218,13 @@ public final class Constants {
     public final static String MINUTES = "minutes";
   }
 
+  public final static class CURVE {
+
+    public final static String STEP = "step";
+    public final static String LINEAR = "linear";
+    public final static String EXPONENTIAL = "exponential";
+  }
+
   public final static class SONGS_ORDER {
 
     public final static int NAME_ASC = 0;
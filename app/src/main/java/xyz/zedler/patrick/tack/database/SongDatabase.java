@@ -21,6 +21,7 @@ package xyz.zedler.patrick.tack.database;
 
 
 import android.content.Context;
+import androidx.room.AutoMigration;
 import androidx.room.Database;
 import androidx.room.Room;
 import androidx.room.RoomDatabase;
@@ -28,7 +29,15 @@ import xyz.zedler.patrick.tack.database.dao.SongDao;
 import xyz.zedler.patrick.tack.database.entity.Part;
 import xyz.zedler.patrick.tack.database.entity.Song;
 
-@Database(entities = {Song.class, Part.class}, version = 1)
+@Database(
+    entities = {Song.class, Part.class},
+    version = 4,
+    autoMigrations = {
+        @AutoMigration(from = 1, to = 2),
+        @AutoMigration(from = 2, to = 3),
+        @AutoMigration(from = 3, to = 4)
+    }
+)
 public abstract class SongDatabase extends RoomDatabase {
 
   public abstract SongDao songDao();
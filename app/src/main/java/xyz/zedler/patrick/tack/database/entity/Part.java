@@ -24,6 +24,7 @@ import android.os.Parcel;
 import android.os.Parcelable;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.room.ColumnInfo;
 import androidx.room.Entity;
 import androidx.room.ForeignKey;
 import androidx.room.Ignore;
@@ -32,6 +33,7 @@ import androidx.room.PrimaryKey;
 import java.util.Arrays;
 import java.util.Objects;
 import java.util.UUID;
+import xyz.zedler.patrick.tack.Constants.CURVE;
 import xyz.zedler.patrick.tack.Constants.UNIT;
 import xyz.zedler.patrick.tack.R;
 import xyz.zedler.patrick.tack.model.MetronomeConfig;
@@ -59,14 +61,20 @@ public class Part implements Parcelable {
 
   // count in
   private int countIn;
-  // tempo
+  // tempo, decimals in hundredths of a bpm
   private int tempo;
+  @ColumnInfo(defaultValue = "0")
+  private int tempoDecimals;
   // beats
   private String beats, subdivisions;
+  @ColumnInfo(defaultValue = "")
+  private String layers;
   // incremental tempo change
   private int incrementalAmount, incrementalInterval, incrementalLimit;
   private String incrementalUnit;
   private boolean incrementalIncrease;
+  @ColumnInfo(defaultValue = CURVE.STEP)
+  private String incrementalCurve;
   // duration
   private int timerDuration;
   private String timerUnit;
@@ -77,10 +85,10 @@ public class Part implements Parcelable {
 
   public Part(
       @NonNull String id, @Nullable String name, @NonNull String songId, int partIndex,
-      int countIn, int tempo,
-      String beats, String subdivisions,
+      int countIn, int tempo, int tempoDecimals,
+      String beats, String subdivisions, String layers,
       int incrementalAmount, int incrementalInterval, int incrementalLimit,
-      String incrementalUnit, boolean incrementalIncrease,
+      String incrementalUnit, boolean incrementalIncrease, String incrementalCurve,
       int timerDuration, String timerUnit,
       int mutePlay, int muteMute, String muteUnit, boolean muteRandom
   ) {
@@ -92,15 +100,18 @@ public class Part implements Parcelable {
     this.countIn = countIn;
 
     this.tempo = tempo;
+    this.tempoDecimals = tempoDecimals;
 
     this.beats = beats;
     this.subdivisions = subdivisions;
+    this.layers = layers;
 
     this.incrementalAmount = incrementalAmount;
     this.incrementalInterval = incrementalInterval;
     this.incrementalLimit = incrementalLimit;
     this.incrementalUnit = incrementalUnit;
     this.incrementalIncrease = incrementalIncrease;
+    this.incrementalCurve = incrementalCurve;
 
     this.timerDuration = timerDuration;
     this.timerUnit = timerUnit;
@@ -133,15 +144,18 @@ public class Part implements Parcelable {
     this.countIn = part.countIn;
 
     this.tempo = part.tempo;
+    this.tempoDecimals = part.tempoDecimals;
 
     this.beats = part.beats;
     this.subdivisions = part.subdivisions;
+    this.layers = part.layers;
 
     this.incrementalAmount = part.incrementalAmount;
     this.incrementalInterval = part.incrementalInterval;
     this.incrementalLimit = part.incrementalLimit;
     this.incrementalUnit = part.incrementalUnit;
     this.incrementalIncrease = part.incrementalIncrease;
+    this.incrementalCurve = part.incrementalCurve;
 
     this.timerDuration = part.timerDuration;
     this.timerUnit = part.timerUnit;
@@ -159,13 +173,16 @@ public class Part implements Parcelable {
     partIndex = in.readInt();
     countIn = in.readInt();
     tempo = in.readInt();
+    tempoDecimals = in.readInt();
     beats = in.readString();
     subdivisions = in.readString();
+    layers = in.readString();
     incrementalAmount = in.readInt();
     incrementalInterval = in.readInt();
     incrementalLimit = in.readInt();
     incrementalUnit = in.readString();
     incrementalIncrease = in.readByte() != 0;
+    incrementalCurve = in.readString();
     timerDuration = in.readInt();
     timerUnit = in.readString();
     mutePlay = in.readInt();
@@ -225,6 +242,18 @@ public class Part implements Parcelable {
     this.tempo = tempo;
   }
 
+  public int getTempoDecimals() {
+    return tempoDecimals;
+  }
+
+  public void setTempoDecimals(int tempoDecimals) {
+    this.tempoDecimals = tempoDecimals;
+  }
+
+  public double getTempoExact() {
+    return tempo + tempoDecimals / 100.0;
+  }
+
   public String getBeats() {
     return beats;
   }
@@ -245,6 +274,15 @@ public class Part implements Parcelable {
     this.subdivisions = subdivisions;
   }
 
+  public String getLayers() {
+    // missing in backups from versions without polyrhythm layers
+    return layers != null ? layers : "";
+  }
+
+  public void setLayers(String layers) {
+    this.layers = layers;
+  }
+
   public int getIncrementalAmount() {
     return incrementalAmount;
   }
@@ -285,6 +323,15 @@ public class Part implements Parcelable {
     this.incrementalIncrease = incrementalIncrease;
   }
 
+  public String getIncrementalCurve() {
+    // missing in backups from versions without tempo ramps
+    return incrementalCurve != null ? incrementalCurve : CURVE.STEP;
+  }
+
+  public void setIncrementalCurve(String incrementalCurve) {
+    this.incrementalCurve = incrementalCurve;
+  }
+
   public int getTimerDuration() {
     return timerDuration;
   }
@@ -356,10 +403,10 @@ public class Part implements Parcelable {
   public MetronomeConfig toConfig() {
     return new MetronomeConfig(
         countIn,
-        tempo,
-        beats.split(","), subdivisions.split(","),
+        tempo, tempoDecimals,
+        beats.split(","), subdivisions.split(","), MetronomeConfig.parseLayers(getLayers()),
         incrementalAmount, incrementalInterval, incrementalLimit,
-        incrementalUnit, incrementalIncrease,
+        incrementalUnit, incrementalIncrease, getIncrementalCurve(),
         timerDuration, timerUnit,
         mutePlay, muteMute, muteUnit, muteRandom
     );
@@ -369,15 +416,18 @@ public class Part implements Parcelable {
     countIn = config.getCountIn();
 
     tempo = config.getTempo();
+    tempoDecimals = config.getTempoDecimals();
 
     beats = String.join(",", config.getBeats());
     subdivisions = String.join(",", config.getSubdivisions());
+    layers = String.join(",", config.getLayers());
 
     incrementalAmount = config.getIncrementalAmount();
     incrementalInterval = config.getIncrementalInterval();
     incrementalLimit = config.getIncrementalLimit();
     incrementalUnit = config.getIncrementalUnit();
     incrementalIncrease = config.isIncrementalIncrease();
+    incrementalCurve = config.getIncrementalCurve();
 
     timerDuration = config.getTimerDuration();
     timerUnit = config.getTimerUnit();
@@ -391,13 +441,16 @@ public class Part implements Parcelable {
   public boolean equalsConfig(@NonNull MetronomeConfig config) {
     return countIn == config.getCountIn()
         && tempo == config.getTempo()
+        && tempoDecimals == config.getTempoDecimals()
         && Arrays.equals(beats.split(","), config.getBeats())
         && Arrays.equals(subdivisions.split(","), config.getSubdivisions())
+        && Arrays.equals(MetronomeConfig.parseLayers(getLayers()), config.getLayers())
         && incrementalAmount == config.getIncrementalAmount()
         && incrementalInterval == config.getIncrementalInterval()
         && incrementalLimit == config.getIncrementalLimit()
         && incrementalUnit.equals(config.getIncrementalUnit())
         && incrementalIncrease == config.isIncrementalIncrease()
+        && getIncrementalCurve().equals(config.getIncrementalCurve())
         && timerDuration == config.getTimerDuration()
         && timerUnit.equals(config.getTimerUnit())
         && mutePlay == config.getMutePlay()
@@ -413,6 +466,7 @@ public class Part implements Parcelable {
     }
     Part part = (Part) o;
     return partIndex == part.partIndex && countIn == part.countIn && tempo == part.tempo
+        && tempoDecimals == part.tempoDecimals
         && incrementalAmount == part.incrementalAmount
         && incrementalInterval == part.incrementalInterval
         && incrementalLimit == part.incrementalLimit
@@ -422,15 +476,18 @@ public class Part implements Parcelable {
         && Objects.equals(songId, part.songId)
         && Objects.equals(beats, part.beats)
         && Objects.equals(subdivisions, part.subdivisions)
+        && Objects.equals(layers, part.layers)
         && Objects.equals(incrementalUnit, part.incrementalUnit)
+        && Objects.equals(incrementalCurve, part.incrementalCurve)
         && Objects.equals(timerUnit, part.timerUnit) && Objects.equals(muteUnit, part.muteUnit);
   }
 
   @Override
   public int hashCode() {
-    return Objects.hash(id, name, songId, partIndex, countIn, tempo, beats, subdivisions,
-        incrementalAmount, incrementalInterval, incrementalLimit, incrementalUnit,
-        incrementalIncrease, timerDuration, timerUnit, mutePlay, muteMute, muteUnit, muteRandom);
+    return Objects.hash(id, name, songId, partIndex, countIn, tempo, tempoDecimals, beats,
+        subdivisions, layers, incrementalAmount, incrementalInterval, incrementalLimit,
+        incrementalUnit, incrementalIncrease, incrementalCurve, timerDuration, timerUnit,
+        mutePlay, muteMute, muteUnit, muteRandom);
   }
 
   @Override
@@ -446,13 +503,16 @@ public class Part implements Parcelable {
     dest.writeInt(partIndex);
     dest.writeInt(countIn);
     dest.writeInt(tempo);
+    dest.writeInt(tempoDecimals);
     dest.writeString(beats);
     dest.writeString(subdivisions);
+    dest.writeString(layers);
     dest.writeInt(incrementalAmount);
     dest.writeInt(incrementalInterval);
     dest.writeInt(incrementalLimit);
     dest.writeString(incrementalUnit);
     dest.writeByte((byte) (incrementalIncrease ? 1 : 0));
+    dest.writeString(incrementalCurve);
     dest.writeInt(timerDuration);
     dest.writeString(timerUnit);
     dest.writeInt(mutePlay);
@@ -471,13 +531,16 @@ public class Part implements Parcelable {
         ", partIndex=" + partIndex +
         ", countIn=" + countIn +
         ", tempo=" + tempo +
+        ", tempoDecimals=" + tempoDecimals +
         ", beats='" + beats + '\'' +
         ", subdivisions='" + subdivisions + '\'' +
+        ", layers='" + layers + '\'' +
         ", incrementalAmount=" + incrementalAmount +
         ", incrementalInterval=" + incrementalInterval +
         ", incrementalLimit=" + incrementalLimit +
         ", incrementalUnit='" + incrementalUnit + '\'' +
         ", incrementalIncrease=" + incrementalIncrease +
+        ", incrementalCurve='" + incrementalCurve + '\'' +
         ", timerDuration=" + timerDuration +
         ", timerUnit='" + timerUnit + '\'' +
         ", mutePlay=" + mutePlay +
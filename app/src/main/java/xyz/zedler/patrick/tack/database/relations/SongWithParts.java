@@ -87,7 +87,7 @@ public class SongWithParts {
             String incrementalUnit = part.getIncrementalUnit();
             int interval = part.getIncrementalInterval();
             if (incrementalUnit.equals(UNIT.BARS)) {
-              int tempo = part.getTempo();
+              double tempo = part.getTempoExact();
               for (int i = 0; i < part.getTimerDuration(); i++) {
                 float factor = ((float) 60 / tempo) * part.getBeatsCount();
                 seconds += factor * interval;
@@ -108,11 +108,11 @@ public class SongWithParts {
               }
             } else {
               // TODO: implement incremental tempo changes for seconds and minutes
-              float factor = ((float) 60 / part.getTempo()) * part.getBeatsCount();
+              double factor = (60 / part.getTempoExact()) * part.getBeatsCount();
               seconds += factor * part.getTimerDuration();
             }
           } else {
-            float factor = ((float) 60 / part.getTempo()) * part.getBeatsCount();
+            double factor = (60 / part.getTempoExact()) * part.getBeatsCount();
             seconds += factor * part.getTimerDuration();
           }
           break;
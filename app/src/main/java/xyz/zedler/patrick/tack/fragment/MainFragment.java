@@ -79,6 +79,7 @@ import xyz.zedler.patrick.tack.metronome.MetronomeEngine;
 import xyz.zedler.patrick.tack.metronome.MetronomeEngine.MetronomeListener;
 import xyz.zedler.patrick.tack.metronome.MetronomeEngine.Tick;
 import xyz.zedler.patrick.tack.model.MetronomeConfig;
+import xyz.zedler.patrick.tack.model.TickPattern;
 import xyz.zedler.patrick.tack.util.DialogUtil;
 import xyz.zedler.patrick.tack.util.LogoUtil;
 import xyz.zedler.patrick.tack.util.NotificationUtil;
@@ -940,7 +941,7 @@ public class MainFragment extends BaseFragment implements OnClickListener, Metro
       View beat = binding.linearMainBeats.getChildAt(tick.beat - 1);
       if (beat instanceof BeatView && tick.subdivision == 1) {
         resetActiveBeats();
-        ((BeatView) beat).setTickType(tick.type);
+        ((BeatView) beat).setTickType(TickPattern.getTickType(tick.type));
         if (activeBeat) {
           ((BeatView) beat).setActive(true);
         }
@@ -950,7 +951,9 @@ public class MainFragment extends BaseFragment implements OnClickListener, Metro
       if (!(subdivision instanceof BeatView)) {
         return;
       }
-      ((BeatView) subdivision).setTickType(tick.subdivision == 1 ? TICK_TYPE.MUTED : tick.type);
+      ((BeatView) subdivision).setTickType(
+          tick.subdivision == 1 ? TICK_TYPE.MUTED : TickPattern.getTickType(tick.type)
+      );
       ((BeatView) subdivision).beat();
     });
   }
@@ -964,11 +967,11 @@ public class MainFragment extends BaseFragment implements OnClickListener, Metro
       if (flashScreen) {
         int color;
         switch (tick.type) {
-          case TICK_TYPE.STRONG:
+          case TickPattern.STRONG:
             color = colorFlashStrong;
             break;
-          case TICK_TYPE.SUB:
-          case TICK_TYPE.MUTED:
+          case TickPattern.SUB:
+          case TickPattern.MUTED:
             color = colorFlashMuted;
             break;
           default:
@@ -1558,6 +1561,7 @@ public class MainFragment extends BaseFragment implements OnClickListener, Metro
     }
     MetronomeConfig config = getMetronomeEngine().getConfig();
     return (config.isCountInActive() ? 1 : 0) +
+        (config.isPolyrhythmActive() ? 1 : 0) +
         (config.isIncrementalActive() ? 1 : 0) +
         (config.isTimerActive() ? 1 : 0) +
         (config.isMuteActive() ? 1 : 0);
@@ -59,11 +59,13 @@ import xyz.zedler.patrick.tack.service.MetronomeService;
 import xyz.zedler.patrick.tack.util.DialogUtil;
 import xyz.zedler.patrick.tack.util.HapticUtil;
 import xyz.zedler.patrick.tack.util.LocaleUtil;
+import xyz.zedler.patrick.tack.metronome.AudioEngine;
 import xyz.zedler.patrick.tack.metronome.MetronomeEngine;
 import xyz.zedler.patrick.tack.util.ShortcutUtil;
 import xyz.zedler.patrick.tack.util.UiUtil;
 import xyz.zedler.patrick.tack.util.ViewUtil;
 import xyz.zedler.patrick.tack.util.dialog.BackupDialogUtil;
+import xyz.zedler.patrick.tack.util.dialog.CustomSoundDialogUtil;
 import xyz.zedler.patrick.tack.util.dialog.GainDialogUtil;
 import xyz.zedler.patrick.tack.util.dialog.LanguagesDialogUtil;
 import xyz.zedler.patrick.tack.util.dialog.LatencyDialogUtil;
@@ -82,6 +84,8 @@ public class SettingsFragment extends BaseFragment
   private GainDialogUtil gainDialogUtil;
   private LatencyDialogUtil latencyDialogUtil;
   private BackupDialogUtil backupDialogUtil;
+  private CustomSoundDialogUtil customSoundDialogUtil;
+  private int latencyLongClickCount = 0;
 
   @Override
   public View onCreateView(
@@ -101,6 +105,7 @@ public class SettingsFragment extends BaseFragment
     gainDialogUtil.dismiss();
     latencyDialogUtil.dismiss();
     backupDialogUtil.dismiss();
+    customSoundDialogUtil.dismiss();
   }
 
   @Override
@@ -290,6 +295,9 @@ public class SettingsFragment extends BaseFragment
     backupDialogUtil = new BackupDialogUtil(activity, this);
     backupDialogUtil.showIfWasShown(savedInstanceState);
 
+    customSoundDialogUtil = new CustomSoundDialogUtil(activity, this);
+    customSoundDialogUtil.showIfWasShown(savedInstanceState);
+
     updateMetronomeControls(true);
 
     ViewUtil.setOnClickListeners(
@@ -300,8 +308,14 @@ public class SettingsFragment extends BaseFragment
         binding.linearSettingsBackup,
         binding.linearSettingsReset,
         binding.linearSettingsSound,
+        binding.linearSettingsCustomSound,
         binding.linearSettingsLatency,
+        binding.linearSettingsLatencyAuto,
         binding.linearSettingsIgnoreFocus,
+        binding.linearSettingsFrameClock,
+        binding.linearSettingsWarmTrack,
+        binding.linearSettingsLowLatency,
+        binding.linearSettingsAudioDebug,
         binding.linearSettingsGain,
         binding.linearSettingsActiveBeat,
         binding.linearSettingsPermNotification,
@@ -315,7 +329,11 @@ public class SettingsFragment extends BaseFragment
         this,
         binding.switchSettingsHaptic,
         binding.switchSettingsReduceAnimations,
+        binding.switchSettingsLatencyAuto,
         binding.switchSettingsIgnoreFocus,
+        binding.switchSettingsFrameClock,
+        binding.switchSettingsWarmTrack,
+        binding.switchSettingsLowLatency,
         binding.switchSettingsActiveBeat,
         binding.switchSettingsPermNotification,
         binding.switchSettingsElapsed,
@@ -346,6 +364,9 @@ public class SettingsFragment extends BaseFragment
     if (backupDialogUtil != null) {
       backupDialogUtil.saveState(outState);
     }
+    if (customSoundDialogUtil != null) {
+      customSoundDialogUtil.saveState(outState);
+    }
   }
 
   @Override
@@ -362,6 +383,7 @@ public class SettingsFragment extends BaseFragment
     labels.put(SOUND.BEATBOXING_2, getString(R.string.settings_sound_beatboxing_2));
     labels.put(SOUND.HANDS, getString(R.string.settings_sound_hands));
     labels.put(SOUND.FOLDING, getString(R.string.settings_sound_folding));
+    labels.put(SOUND.CUSTOM, getString(R.string.settings_sound_custom));
     ArrayList<String> sounds = new ArrayList<>(labels.keySet());
     String[] items = labels.values().toArray(new String[]{});
     int initItem = sounds.indexOf(metronomeEngine.getSound());
@@ -396,8 +418,53 @@ public class SettingsFragment extends BaseFragment
     binding.switchSettingsIgnoreFocus.jumpDrawablesToCurrentState();
     binding.switchSettingsIgnoreFocus.setOnCheckedChangeListener(this);
 
+    binding.switchSettingsLatencyAuto.setOnCheckedChangeListener(null);
+    binding.switchSettingsLatencyAuto.setChecked(metronomeEngine.getLatencyAuto());
+    binding.switchSettingsLatencyAuto.jumpDrawablesToCurrentState();
+    binding.switchSettingsLatencyAuto.setOnCheckedChangeListener(this);
+
+    binding.switchSettingsFrameClock.setOnCheckedChangeListener(null);
+    binding.switchSettingsFrameClock.setChecked(metronomeEngine.getFrameClock());
+    binding.switchSettingsFrameClock.jumpDrawablesToCurrentState();
+    binding.switchSettingsFrameClock.setOnCheckedChangeListener(this);
+
+    binding.switchSettingsWarmTrack.setOnCheckedChangeListener(null);
+    binding.switchSettingsWarmTrack.setChecked(metronomeEngine.getWarmTrack());
+    binding.switchSettingsWarmTrack.jumpDrawablesToCurrentState();
+    binding.switchSettingsWarmTrack.setOnCheckedChangeListener(this);
+
+    binding.linearSettingsLowLatency.setVisibility(
+        AudioEngine.isLowLatencySupported() ? View.VISIBLE : View.GONE
+    );
+    binding.switchSettingsLowLatency.setOnCheckedChangeListener(null);
+    binding.switchSettingsLowLatency.setChecked(metronomeEngine.getLowLatency());
+    binding.switchSettingsLowLatency.jumpDrawablesToCurrentState();
+    binding.switchSettingsLowLatency.setOnCheckedChangeListener(this);
+
     updateGainDescription(metronomeEngine.getGain());
     updateLatencyDescription(metronomeEngine.getLatency());
+    updateAudioDebug();
+
+    binding.linearSettingsLatency.setOnLongClickListener(v -> {
+      // hidden diagnostics panel for reports of stuttering audio
+      latencyLongClickCount++;
+      if (latencyLongClickCount >= 5) {
+        latencyLongClickCount = 0;
+        boolean audioDebug = !getSharedPrefs().getBoolean(PREF.AUDIO_DEBUG, DEF.AUDIO_DEBUG);
+        getSharedPrefs().edit().putBoolean(PREF.AUDIO_DEBUG, audioDebug).apply();
+        performHapticClick();
+        updateAudioDebug();
+      }
+      return true;
+    });
+    binding.linearSettingsAudioDebug.setOnLongClickListener(v -> {
+      if (getMetronomeEngine() != null) {
+        performHapticClick();
+        getMetronomeEngine().resetAudioMetrics();
+        updateAudioDebug();
+      }
+      return true;
+    });
 
     binding.switchSettingsElapsed.setOnCheckedChangeListener(null);
     binding.switchSettingsElapsed.setChecked(metronomeEngine.getShowElapsed());
@@ -472,11 +539,25 @@ public class SettingsFragment extends BaseFragment
       ViewUtil.startIcon(binding.imageSettingsSound);
       performHapticClick();
       dialogUtilSound.show();
+    } else if (id == R.id.linear_settings_custom_sound && getViewUtil().isClickEnabled(id)) {
+      performHapticClick();
+      customSoundDialogUtil.show();
     } else if (id == R.id.linear_settings_latency && getViewUtil().isClickEnabled(id)) {
       performHapticClick();
       latencyDialogUtil.show();
+    } else if (id == R.id.linear_settings_latency_auto) {
+      binding.switchSettingsLatencyAuto.toggle();
     } else if (id == R.id.linear_settings_ignore_focus) {
       binding.switchSettingsIgnoreFocus.toggle();
+    } else if (id == R.id.linear_settings_frame_clock) {
+      binding.switchSettingsFrameClock.toggle();
+    } else if (id == R.id.linear_settings_warm_track) {
+      binding.switchSettingsWarmTrack.toggle();
+    } else if (id == R.id.linear_settings_low_latency) {
+      binding.switchSettingsLowLatency.toggle();
+    } else if (id == R.id.linear_settings_audio_debug) {
+      performHapticClick();
+      updateAudioDebug();
     } else if (id == R.id.linear_settings_gain && getViewUtil().isClickEnabled(id)) {
       performHapticClick();
       gainDialogUtil.show();
@@ -515,6 +596,23 @@ public class SettingsFragment extends BaseFragment
       performHapticClick();
       ViewUtil.startIcon(binding.imageSettingsIgnoreFocus);
       metronomeEngine.setIgnoreFocus(isChecked);
+    } else if (id == R.id.switch_settings_frame_clock) {
+      performHapticClick();
+      ViewUtil.startIcon(binding.imageSettingsFrameClock);
+      metronomeEngine.setFrameClock(isChecked);
+    } else if (id == R.id.switch_settings_latency_auto) {
+      performHapticClick();
+      ViewUtil.startIcon(binding.imageSettingsLatencyAuto);
+      metronomeEngine.setLatencyAuto(isChecked);
+      updateLatencyDescription(metronomeEngine.getLatency());
+    } else if (id == R.id.switch_settings_warm_track) {
+      performHapticClick();
+      ViewUtil.startIcon(binding.imageSettingsWarmTrack);
+      metronomeEngine.setWarmTrack(isChecked);
+    } else if (id == R.id.switch_settings_low_latency) {
+      performHapticClick();
+      ViewUtil.startIcon(binding.imageSettingsLowLatency);
+      metronomeEngine.setLowLatency(isChecked);
     } else if (id == R.id.switch_settings_active_beat) {
       performHapticClick();
       getSharedPrefs().edit().putBoolean(PREF.ACTIVE_BEAT, isChecked).apply();
@@ -594,9 +692,46 @@ public class SettingsFragment extends BaseFragment
   }
 
   public void updateLatencyDescription(long latency) {
-    if (binding != null) {
-      binding.textSettingsLatency.setText(
-          activity.getString(R.string.label_ms, String.valueOf(latency))
+    MetronomeEngine metronomeEngine = activity.getMetronomeEngine();
+    if (binding == null) {
+      return;
+    }
+    String trim = activity.getString(R.string.label_ms, String.valueOf(latency));
+    if (metronomeEngine != null && metronomeEngine.getLatencyAuto()) {
+      long outputLatency = metronomeEngine.getOutputLatency();
+      if (outputLatency >= 0) {
+        String measured = activity.getString(R.string.label_ms, String.valueOf(outputLatency));
+        binding.textSettingsLatency.setText(
+            activity.getString(R.string.settings_latency_trim, measured, trim)
+        );
+      } else {
+        binding.textSettingsLatency.setText(
+            activity.getString(R.string.settings_latency_trim_pending, trim)
+        );
+      }
+    } else {
+      binding.textSettingsLatency.setText(trim);
+    }
+  }
+
+  private void updateAudioDebug() {
+    MetronomeEngine metronomeEngine = activity.getMetronomeEngine();
+    if (binding == null || metronomeEngine == null) {
+      return;
+    }
+    boolean audioDebug = getSharedPrefs().getBoolean(PREF.AUDIO_DEBUG, DEF.AUDIO_DEBUG);
+    binding.linearSettingsAudioDebug.setVisibility(audioDebug ? View.VISIBLE : View.GONE);
+    if (audioDebug) {
+      String bufferSize = getString(
+          R.string.settings_audio_debug_buffer,
+          String.valueOf(metronomeEngine.getAudioBufferSize())
+      );
+      long startLatency = metronomeEngine.getStartLatency();
+      String startLatencyText = startLatency >= 0
+          ? getString(R.string.settings_audio_debug_start_latency, String.valueOf(startLatency))
+          : getString(R.string.settings_audio_debug_start_latency_pending);
+      binding.textSettingsAudioDebug.setText(
+          bufferSize + "\n" + startLatencyText + "\n" + metronomeEngine.getAudioMetrics()
       );
     }
   }
@@ -19,6 +19,7 @@
 
 package xyz.zedler.patrick.tack.fragment;
 
+import android.net.Uri;
 import android.os.Bundle;
 import android.text.Editable;
 import android.text.TextWatcher;
@@ -33,6 +34,8 @@ import android.view.inputmethod.EditorInfo;
 import android.widget.CompoundButton;
 import android.widget.CompoundButton.OnCheckedChangeListener;
 import androidx.activity.OnBackPressedCallback;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.PopupMenu;
@@ -45,6 +48,7 @@ import androidx.core.view.WindowInsetsCompat.Type;
 import androidx.recyclerview.widget.DefaultItemAnimator;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import com.google.android.material.math.MathUtils;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
@@ -56,7 +60,9 @@ import xyz.zedler.patrick.tack.behavior.ScrollBehavior.OnScrollChangedListener;
 import xyz.zedler.patrick.tack.behavior.SystemBarBehavior;
 import xyz.zedler.patrick.tack.database.entity.Part;
 import xyz.zedler.patrick.tack.database.entity.Song;
+import xyz.zedler.patrick.tack.database.relations.SongWithParts;
 import xyz.zedler.patrick.tack.databinding.FragmentSongBinding;
+import xyz.zedler.patrick.tack.metronome.OfflineRenderer.RenderListener;
 import xyz.zedler.patrick.tack.recyclerview.adapter.PartAdapter;
 import xyz.zedler.patrick.tack.recyclerview.adapter.PartAdapter.OnPartItemClickListener;
 import xyz.zedler.patrick.tack.recyclerview.decoration.PartItemDecoration;
@@ -86,6 +92,7 @@ public class SongFragment extends BaseFragment implements OnClickListener, OnChe
   private RenameDialogUtil renameDialogUtil;
   private OptionsUtil optionsUtil;
   private OnBackPressedCallback onBackPressedCallback;
+  private ActivityResultLauncher<String> launcherExport;
   private PartAdapter adapter;
   private Song songSource;
   private Song songResult = new Song();
@@ -174,6 +181,10 @@ public class SongFragment extends BaseFragment implements OnClickListener, OnChe
 
     setupImeAnimation(systemBarBehavior);
 
+    launcherExport = registerForActivityResult(
+        new ActivityResultContracts.CreateDocument("audio/wav"), this::exportClickTrack
+    );
+
     binding.toolbarSong.setTitleCentered(isTablet || !isPortrait);
 
     binding.buttonSongClose.setOnClickListener(v -> {
@@ -222,7 +233,12 @@ public class SongFragment extends BaseFragment implements OnClickListener, OnChe
           return false;
         }
         performHapticClick();
-        if (id == R.id.action_delete) {
+        if (id == R.id.action_export) {
+          String name = songResult.getName();
+          launcherExport.launch(
+              (name != null && !name.isEmpty() ? name : "click_track") + ".wav"
+          );
+        } else if (id == R.id.action_delete) {
           dialogUtilDelete.show();
         } else if (id == R.id.action_feedback) {
           activity.showFeedback();
@@ -615,6 +631,46 @@ public class SongFragment extends BaseFragment implements OnClickListener, OnChe
     }
   }
 
+  private void exportClickTrack(@Nullable Uri uri) {
+    if (uri == null) {
+      activity.showSnackbar(R.string.msg_export_location_missing);
+      return;
+    }
+    if (getMetronomeEngine() == null) {
+      return;
+    }
+    // export the edited state, copies are not affected by further edits while rendering
+    List<Part> parts = new ArrayList<>();
+    for (Part part : partsResult) {
+      parts.add(new Part(part));
+    }
+    SongWithParts song = new SongWithParts(new Song(songResult), parts);
+    try {
+      OutputStream outputStream = activity.getContentResolver().openOutputStream(uri);
+      if (outputStream == null) {
+        activity.showSnackbar(R.string.msg_export_error);
+        return;
+      }
+      getMetronomeEngine().renderSong(song, outputStream, new RenderListener() {
+        @Override
+        public void onProgress(float fraction) {}
+
+        @Override
+        public void onRendered() {
+          activity.showSnackbar(R.string.msg_export_success);
+        }
+
+        @Override
+        public void onError() {
+          activity.showSnackbar(R.string.msg_export_error);
+        }
+      });
+    } catch (Exception e) {
+      Log.e(TAG, "exportClickTrack: ", e);
+      activity.showSnackbar(R.string.msg_export_error);
+    }
+  }
+
   private void sortParts() {
     SortUtil.sortPartsByIndex(partsSource);
     SortUtil.sortPartsByIndex(partsResult);
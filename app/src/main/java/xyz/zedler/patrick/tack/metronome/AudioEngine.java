@@ -24,8 +24,9 @@ import android.media.AudioFocusRequest;
 import android.media.AudioFormat;
 import android.media.AudioManager;
 import android.media.AudioManager.OnAudioFocusChangeListener;
+import android.media.AudioTimestamp;
 import android.media.AudioTrack;
-import android.media.audiofx.LoudnessEnhancer;
+import android.media.AudioTrack.OnPlaybackPositionUpdateListener;
 import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.os.Handler;
@@ -33,44 +34,150 @@ import android.os.HandlerThread;
 import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.RawRes;
 import java.io.IOException;
 import java.io.InputStream;
+import xyz.zedler.patrick.tack.Constants.DEF;
 import xyz.zedler.patrick.tack.Constants.SOUND;
 import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
 import xyz.zedler.patrick.tack.R;
+import xyz.zedler.patrick.tack.core.AudioSink;
+import xyz.zedler.patrick.tack.core.CommandQueue;
+import xyz.zedler.patrick.tack.core.PeriodCache;
+import xyz.zedler.patrick.tack.core.PeriodRenderer;
+import xyz.zedler.patrick.tack.core.PhaseLock;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers;
+import xyz.zedler.patrick.tack.core.ResampleUtil;
+import xyz.zedler.patrick.tack.core.SoundCache;
+import xyz.zedler.patrick.tack.core.SoundCache.SoundSet;
+import xyz.zedler.patrick.tack.core.VoiceMixer;
+import xyz.zedler.patrick.tack.core.WavUtil;
+import xyz.zedler.patrick.tack.core.WavUtil.WavData;
 import xyz.zedler.patrick.tack.metronome.MetronomeEngine.Tick;
+import xyz.zedler.patrick.tack.model.MetronomeConfig;
+import xyz.zedler.patrick.tack.model.TickPattern;
 import xyz.zedler.patrick.tack.util.AudioUtil;
+import xyz.zedler.patrick.tack.util.CustomSoundUtil;
 
 public class AudioEngine implements OnAudioFocusChangeListener {
 
   private static final String TAG = AudioEngine.class.getSimpleName();
   private static final boolean DEBUG = false;
 
-  public static final int SAMPLE_RATE_IN_HZ = 48000;
+  // used if the native output rate is unknown, same as the sounds in res/raw
+  private static final int SAMPLE_RATE_DEFAULT = 48000;
+  private static final int SAMPLE_RATE_MIN = 8000;
+  private static final int SAMPLE_RATE_MAX = 192000;
   private static final int SILENCE_CHUNK_SIZE = 8000;
+  private static final long WARM_TRACK_TIMEOUT = 60000;
+  private static final int POLYPHONY_DEFAULT = 4;
+  // fade out of voices exceeding the polyphony in milliseconds
+  private static final int VOICE_FADE_DURATION = 5;
+  private static final int PITCH_ACCENT_STRONG = 1200;
+  private static final int PITCH_ACCENT_SUB = -1200;
+  private static final int BURST_SIZE_DEFAULT = 256;
+  private static final int LOW_LATENCY_BURSTS_MIN = 2;
+  private static final int LOW_LATENCY_BURSTS_MAX = 16;
+  private static final long BUFFER_SHRINK_INTERVAL_MIN = 10000;
+  private static final long BUFFER_SHRINK_INTERVAL_MAX = 300000;
+  private static final long OUTPUT_LATENCY_INTERVAL = 200;
+  private static final long OUTPUT_LATENCY_MAX = 1000;
+  private static final double OUTPUT_LATENCY_SMOOTHING = 0.2;
+  private static final float VOLUME_DUCKED = 0.25f;
+  private static final int COMMAND_LEVELS = 0;
+  private static final int COMMAND_MUTED = 1;
+  private static final int COMMAND_SOUNDS = 2;
+  private static final int COMMAND_LAYERS = 3;
+  private static final int COMMAND_POLYPHONY = 4;
 
   private final Context context;
   private final AudioManager audioManager;
   private final AudioListener listener;
+  private final int burstSize;
+  // native output rate, sounds are resampled to it to keep the fast mixer path
+  private final int sampleRate;
   private HandlerThread audioThread;
   private Handler audioHandler;
   private AudioTrack audioTrack;
-  private LoudnessEnhancer loudnessEnhancer;
+  // master gain and accent gains in dB
+  private int gain, gainStrong, gainNormal, gainSub;
+  private int maxPolyphony = POLYPHONY_DEFAULT;
+  private volatile boolean playing;
+  private String sound;
+  private String[] layers = new String[0];
+  private SoundSet soundSet;
+  private boolean ignoreFocus, warmTrack, lowLatency, trackLowLatency;
+  // only accessed by the audio thread, changed through the command queue at period boundaries
   private float[] tickStrong, tickNormal, tickSub;
-  private int gain, volumeReductionDb;
-  private boolean playing, muted, ignoreFocus;
-  private final float[] silence = new float[SILENCE_CHUNK_SIZE];
+  private float levelStrong = 1, levelNormal = 1, levelSub = 1;
+  private boolean muted;
+  private int lastUnderrunCount;
+  private long lastBufferChangeTime, bufferShrinkInterval;
+  private long playStartTime;
+  private volatile long startLatency = -1;
+  private volatile long outputLatency = -1;
+  private double outputLatencyAverage = -1;
+  private long framesWritten, lastOutputLatencyTime;
+  private volatile long framePosition;
+  private volatile int frameClockGeneration;
+  private long frameClockStartTime, frameClockStartNanos;
+  private final float[] silence = new float[0];
+  private final AudioMetrics metrics = new AudioMetrics();
+  private final AudioTimestamp outputTimestamp = new AudioTimestamp();
+  private final PeriodCache periodCache;
+  private final VoiceMixer voiceMixer;
+  private final PolyrhythmLayers polyrhythmLayers = new PolyrhythmLayers();
+  // only accessed by the audio thread, preallocated to produce no garbage while playing
+  private final PeriodRenderer periodRenderer;
+  private final AudioSink audioSink;
+  private final CommandQueue commandQueue = new CommandQueue();
+  private final CommandQueue.CommandHandler commandHandler = this::applyCommand;
+  private final Runnable applyCommandsRunnable = this::applyCommands;
+  private final PcmFileCache pcmFileCache;
+  private final PhaseLock phaseLock;
+  private final Object trackLock = new Object();
+  private final Runnable releaseTrackRunnable = this::releaseTrack;
 
   public AudioEngine(@NonNull Context context, @NonNull AudioListener listener) {
     this.context = context;
     this.listener = listener;
     audioManager = (AudioManager) context.getSystemService(Context.AUDIO_SERVICE);
+    burstSize = getBurstSize(audioManager);
+    sampleRate = getNativeSampleRate(audioManager);
+    periodCache = new PeriodCache(sampleRate);
+    voiceMixer = new VoiceMixer(POLYPHONY_DEFAULT, sampleRate * VOICE_FADE_DURATION / 1000);
+    // periods up to one second (60 bpm without subdivisions) are written in a single call
+    periodRenderer = new PeriodRenderer(voiceMixer, polyrhythmLayers, sampleRate);
+    pcmFileCache = new PcmFileCache(context);
+    audioSink = new AudioSink() {
+      @Override
+      public boolean write(@NonNull float[] data, int size) {
+        if (!playing) {
+          return false;
+        }
+        writeAudio(data, size);
+        return playing;
+      }
+
+      @Override
+      public int getPlaybackHeadPosition() {
+        // the track may be released by stop() while a period is still being written
+        synchronized (trackLock) {
+          if (audioTrack == null) {
+            throw new IllegalStateException("track is released");
+          }
+          return audioTrack.getPlaybackHeadPosition();
+        }
+      }
+    };
+    phaseLock = new PhaseLock(audioSink, SystemClock::uptimeMillis, sampleRate);
     resetHandlersIfRequired();
   }
 
   public void destroy() {
     removeHandlerCallbacks();
+    releaseTrack();
     audioThread.quitSafely();
   }
 
@@ -92,21 +199,40 @@ public class AudioEngine implements OnAudioFocusChangeListener {
 
   public void play() {
     resetHandlersIfRequired();
+    // a warm track should not be released anymore
+    audioHandler.removeCallbacks(releaseTrackRunnable);
 
     playing = true;
-    audioTrack = getTrack();
-    audioTrack.setVolume(AudioUtil.dbToLinearVolume(volumeReductionDb));
-    try {
-      loudnessEnhancer = new LoudnessEnhancer(audioTrack.getAudioSessionId());
-      loudnessEnhancer.setTargetGain(Math.max(0, gain * 100));
-      loudnessEnhancer.setEnabled(gain > 0);
-    } catch (RuntimeException e) {
-      Log.e(TAG, "play: failed to initialize LoudnessEnhancer: ", e);
-    }
-    try {
-      audioTrack.play();
-    } catch (IllegalStateException e) {
-      Log.e(TAG, "play: failed to start AudioTrack: ", e);
+    // tails of the last start must not be continued, ticks are posted after this
+    audioHandler.post(voiceMixer::reset);
+    synchronized (trackLock) {
+      if (audioTrack == null) {
+        initTrack();
+      }
+      audioTrack.setVolume(1);
+      try {
+        // playback head is reset when the track is created or flushed
+        audioTrack.setNotificationMarkerPosition(1);
+      } catch (IllegalStateException e) {
+        Log.e(TAG, "play: failed to set notification marker: ", e);
+      }
+      if (VERSION.SDK_INT >= VERSION_CODES.N) {
+        lastUnderrunCount = audioTrack.getUnderrunCount();
+      }
+      // frame positions of timestamps start at zero, like the playback head
+      framesWritten = 0;
+      lastOutputLatencyTime = 0;
+      phaseLock.reset();
+      if (trackLowLatency) {
+        lastBufferChangeTime = SystemClock.uptimeMillis();
+        bufferShrinkInterval = BUFFER_SHRINK_INTERVAL_MIN;
+      }
+      playStartTime = System.nanoTime();
+      try {
+        audioTrack.play();
+      } catch (IllegalStateException e) {
+        Log.e(TAG, "play: failed to start AudioTrack: ", e);
+      }
     }
 
     if (ignoreFocus) {
@@ -128,22 +254,21 @@ public class AudioEngine implements OnAudioFocusChangeListener {
 
   public void stop() {
     playing = false;
+    frameClockGeneration++;
     removeHandlerCallbacks();
 
-    if (audioTrack != null) {
-      if (audioTrack.getState() == AudioTrack.STATE_INITIALIZED) {
-        audioTrack.stop();
-      }
-      audioTrack.flush();
-      audioTrack.release();
-    }
-    if (loudnessEnhancer != null) {
+    if (warmTrack && audioTrack != null && trackLowLatency == lowLatency) {
+      // keep the track primed for the next start
       try {
-        loudnessEnhancer.release();
-      } catch (RuntimeException e) {
-        Log.e(TAG, "stop: failed to release LoudnessEnhancer resources: ", e);
+        audioTrack.pause();
+        audioTrack.flush();
+        audioHandler.postDelayed(releaseTrackRunnable, WARM_TRACK_TIMEOUT);
+      } catch (IllegalStateException e) {
+        Log.e(TAG, "stop: failed to pause AudioTrack, releasing it: ", e);
+        releaseTrack();
       }
-      loudnessEnhancer = null;
+    } else {
+      releaseTrack();
     }
     if (!ignoreFocus) {
       audioManager.abandonAudioFocus(this);
@@ -151,11 +276,214 @@ public class AudioEngine implements OnAudioFocusChangeListener {
     listener.onAudioStop();
   }
 
+  private void initTrack() {
+    synchronized (trackLock) {
+      audioTrack = getTrack(lowLatency);
+      trackLowLatency = lowLatency;
+      // output route may be different for the new track
+      outputLatencyAverage = -1;
+      outputLatency = -1;
+      audioTrack.setPlaybackPositionUpdateListener(new OnPlaybackPositionUpdateListener() {
+        @Override
+        public void onMarkerReached(AudioTrack track) {
+          measureStartLatency(track);
+        }
+
+        @Override
+        public void onPeriodicNotification(AudioTrack track) {}
+      });
+    }
+  }
+
+  private void releaseTrack() {
+    synchronized (trackLock) {
+      if (audioTrack != null) {
+        if (audioTrack.getState() == AudioTrack.STATE_INITIALIZED) {
+          audioTrack.stop();
+        }
+        audioTrack.flush();
+        audioTrack.release();
+        audioTrack = null;
+      }
+    }
+  }
+
+  private void measureStartLatency(AudioTrack track) {
+    long firstFrameTime = System.nanoTime();
+    AudioTimestamp timestamp = new AudioTimestamp();
+    try {
+      if (track.getTimestamp(timestamp) && timestamp.framePosition > 0) {
+        // extrapolate back to the presentation of the first frame
+        firstFrameTime = timestamp.nanoTime
+            - timestamp.framePosition * 1_000_000_000L / sampleRate;
+      }
+    } catch (IllegalStateException e) {
+      Log.e(TAG, "measureStartLatency: failed to get timestamp: ", e);
+    }
+    startLatency = Math.max(0, (firstFrameTime - playStartTime) / 1_000_000);
+    if (DEBUG) {
+      Log.d(TAG, "measureStartLatency: first frame after " + startLatency + " ms");
+    }
+  }
+
+  /**
+   * Returns the measured time from the last start to the presentation of the first frame in
+   * milliseconds or -1 if not measured yet.
+   */
+  public long getStartLatency() {
+    return startLatency;
+  }
+
+  /**
+   * Returns the measured delay between the scheduled time of a tick and the presentation of its
+   * first frame in milliseconds or -1 if not measured yet.
+   */
+  public long getOutputLatency() {
+    return outputLatency;
+  }
+
+  /**
+   * Compares the presentation time of the first frame of a tick, extrapolated from the latest
+   * timestamp of the track, with the time the tick was scheduled for and smooths the result.
+   * Must only be called from the audio thread after the tick period was written.
+   *
+   * @param tickFrame index of the first frame of the tick since the track was started
+   * @param tickTime  uptime in milliseconds at which the tick was scheduled
+   */
+  private void updateOutputLatency(long tickFrame, long tickTime) {
+    long now = SystemClock.uptimeMillis();
+    if (now - lastOutputLatencyTime < OUTPUT_LATENCY_INTERVAL || audioTrack == null) {
+      return;
+    }
+    lastOutputLatencyTime = now;
+    try {
+      if (!audioTrack.getTimestamp(outputTimestamp) || outputTimestamp.framePosition <= 0) {
+        return;
+      }
+    } catch (IllegalStateException e) {
+      return;
+    }
+    // timestamp time and uptime are both based on the monotonic clock
+    double presentationTime = outputTimestamp.nanoTime / 1_000_000d
+        + (tickFrame - outputTimestamp.framePosition) * 1000d / sampleRate;
+    double delay = presentationTime - tickTime;
+    if (delay < 0 || delay > OUTPUT_LATENCY_MAX) {
+      // stale timestamp, e.g. right after a flush
+      return;
+    }
+    if (outputLatencyAverage < 0) {
+      outputLatencyAverage = delay;
+    } else {
+      outputLatencyAverage += (delay - outputLatencyAverage) * OUTPUT_LATENCY_SMOOTHING;
+    }
+    outputLatency = Math.round(outputLatencyAverage);
+  }
+
+  public void setWarmTrack(boolean warm) {
+    warmTrack = warm;
+    if (playing) {
+      return;
+    }
+    resetHandlersIfRequired();
+    if (warm) {
+      // prime the track for the first start
+      synchronized (trackLock) {
+        if (audioTrack == null) {
+          initTrack();
+        }
+      }
+      audioHandler.removeCallbacks(releaseTrackRunnable);
+      audioHandler.postDelayed(releaseTrackRunnable, WARM_TRACK_TIMEOUT);
+    } else {
+      audioHandler.removeCallbacks(releaseTrackRunnable);
+      releaseTrack();
+    }
+  }
+
+  public boolean getWarmTrack() {
+    return warmTrack;
+  }
+
+  public void setLowLatency(boolean lowLatency) {
+    // a playing track is replaced on stop, see stop()
+    this.lowLatency = lowLatency;
+    if (!playing && audioTrack != null && trackLowLatency != lowLatency) {
+      releaseTrack();
+      setWarmTrack(warmTrack);
+    }
+  }
+
+  /**
+   * Sets how many tick sounds may overlap, 1 cuts off each tick at the next one
+   */
+  public void setMaxPolyphony(int maxPolyphony) {
+    this.maxPolyphony = Math.max(1, Math.min(maxPolyphony, VoiceMixer.POLYPHONY_MAX));
+    sendCommand(COMMAND_POLYPHONY, this.maxPolyphony, null);
+  }
+
+  public int getMaxPolyphony() {
+    return maxPolyphony;
+  }
+
+  public boolean getLowLatency() {
+    return lowLatency;
+  }
+
+  public static boolean isLowLatencySupported() {
+    return VERSION.SDK_INT >= VERSION_CODES.O;
+  }
+
+  /**
+   * Returns the current buffer size of the track in frames or -1 if there is no track
+   */
+  public int getBufferSize() {
+    AudioTrack track = audioTrack;
+    if (track != null && VERSION.SDK_INT >= VERSION_CODES.N) {
+      try {
+        return track.getBufferSizeInFrames();
+      } catch (IllegalStateException e) {
+        return -1;
+      }
+    }
+    return -1;
+  }
+
+  @NonNull
+  public AudioMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Grows the buffer by one burst after underruns and shrinks it again after a while without
+   * underruns. The shrink interval is doubled on every underrun to prevent oscillation.
+   */
+  private void tuneBufferSize(boolean underrun) {
+    if (VERSION.SDK_INT < VERSION_CODES.N) {
+      return;
+    }
+    int bufferSize = audioTrack.getBufferSizeInFrames();
+    long now = SystemClock.uptimeMillis();
+    if (underrun) {
+      lastBufferChangeTime = now;
+      bufferShrinkInterval = Math.min(bufferShrinkInterval * 2, BUFFER_SHRINK_INTERVAL_MAX);
+      if (bufferSize + burstSize <= audioTrack.getBufferCapacityInFrames()) {
+        audioTrack.setBufferSizeInFrames(bufferSize + burstSize);
+        if (DEBUG) {
+          Log.d(TAG, "tuneBufferSize: underrun, increased to " + (bufferSize + burstSize));
+        }
+      }
+    } else if (now - lastBufferChangeTime > bufferShrinkInterval
+        && bufferSize - burstSize >= burstSize * LOW_LATENCY_BURSTS_MIN) {
+      lastBufferChangeTime = now;
+      audioTrack.setBufferSizeInFrames(bufferSize - burstSize);
+    }
+  }
+
   @Override
   public void onAudioFocusChange(int focusChange) {
     if (focusChange == AudioManager.AUDIOFOCUS_GAIN) {
       if (audioTrack != null) {
-        audioTrack.setVolume(AudioUtil.dbToLinearVolume(volumeReductionDb));
+        audioTrack.setVolume(1);
       }
     } else if (focusChange == AudioManager.AUDIOFOCUS_LOSS) {
       stop();
@@ -163,16 +491,99 @@ public class AudioEngine implements OnAudioFocusChangeListener {
         || focusChange == AudioManager.AUDIOFOCUS_LOSS_TRANSIENT_CAN_DUCK
     ) {
       if (audioTrack != null) {
-        audioTrack.setVolume(Math.min(0.25f, AudioUtil.dbToLinearVolume(volumeReductionDb)));
+        audioTrack.setVolume(VOLUME_DUCKED);
       }
     }
   }
 
   public void setSound(String sound) {
+    this.sound = sound;
+    SoundSet soundSet = getSoundSet(sound);
+    if (soundSet == this.soundSet) {
+      // rendered periods are still valid
+      return;
+    }
+    this.soundSet = soundSet;
+    sendCommand(COMMAND_SOUNDS, 0, soundSet);
+  }
+
+  /**
+   * Drops the decoded set of the given sound and loads it again if it is in use, the new set
+   * is swapped in without stopping playback
+   */
+  public void reloadSound(String sound) {
+    SoundCache.remove(SoundCache.getKey(sound, sampleRate));
+    if (sound.equals(this.sound)) {
+      setSound(sound);
+    }
+    for (String layer : layers) {
+      if (sound.equals(MetronomeConfig.getLayerSound(layer))) {
+        setLayers(layers);
+        break;
+      }
+    }
+  }
+
+  /**
+   * Sets the polyrhythm layers as pulses:sound definitions, their pulses are mixed into the
+   * periods of the ticks
+   */
+  public void setLayers(@NonNull String[] layers) {
+    this.layers = layers;
+    sendCommand(
+        COMMAND_LAYERS, 0, PolyrhythmLayers.createLayers(layers, this::getLayerSound)
+    );
+  }
+
+  /**
+   * Creates the layers of the given definitions ahead of time, decoding their sounds if required,
+   * so a later switch in the scheduler does not wait for the disk
+   */
+  @NonNull
+  public PolyrhythmLayers.Layer[] prepareLayers(@NonNull String[] layers) {
+    return PolyrhythmLayers.createLayers(layers, this::getLayerSound);
+  }
+
+  /**
+   * Switches to layers created with prepareLayers. On the audio thread, the consumer of the
+   * command queue, they are applied right away, else with the start of the next period.
+   */
+  public void setLayers(@NonNull String[] layers, @NonNull PolyrhythmLayers.Layer[] prepared) {
+    this.layers = layers;
+    if (Thread.currentThread() == audioThread) {
+      // earlier commands must not override the new layers later
+      applyCommands();
+      polyrhythmLayers.setLayers(prepared);
+    } else {
+      sendCommand(COMMAND_LAYERS, 0, prepared);
+    }
+  }
+
+  @NonNull
+  private float[] getLayerSound(@NonNull String sound) {
+    return getSoundSet(sound).normal;
+  }
+
+  private SoundSet getSoundSet(String sound) {
+    // switching between parts must not touch the disk, sets are decoded only once per process
+    String key = SoundCache.getKey(sound, sampleRate);
+    SoundSet soundSet = SoundCache.get(key);
+    if (soundSet == null) {
+      soundSet = loadSoundSet(sound);
+      SoundCache.put(key, soundSet);
+    }
+    return soundSet;
+  }
+
+  private SoundSet loadSoundSet(String sound) {
+    if (sound.equals(SOUND.CUSTOM)) {
+      return loadCustomSoundSet();
+    }
     int resIdNormal, resIdStrong, resIdSub;
-    Pitch pitchNormal = Pitch.NORMAL;
-    Pitch pitchStrong = Pitch.HIGH;
-    Pitch pitchSub = Pitch.LOW;
+    // pitch in cents, the sine and wood sounds use one octave up and down as accents
+    int pitchNormal = 0;
+    int pitchStrong = PITCH_ACCENT_STRONG;
+    int pitchSub = PITCH_ACCENT_SUB;
     switch (sound) {
       case SOUND.WOOD:
         resIdNormal = R.raw.wood;
@@ -183,36 +594,36 @@ public class AudioEngine implements OnAudioFocusChangeListener {
         resIdNormal = R.raw.mechanical_tick;
         resIdStrong = R.raw.mechanical_ding;
         resIdSub = R.raw.mechanical_knock;
-        pitchStrong = Pitch.NORMAL;
-        pitchSub = Pitch.NORMAL;
+        pitchStrong = 0;
+        pitchSub = 0;
         break;
       case SOUND.BEATBOXING_1:
         resIdNormal = R.raw.beatbox_snare1;
         resIdStrong = R.raw.beatbox_kick1;
         resIdSub = R.raw.beatbox_hihat1;
-        pitchStrong = Pitch.NORMAL;
-        pitchSub = Pitch.NORMAL;
+        pitchStrong = 0;
+        pitchSub = 0;
         break;
       case SOUND.BEATBOXING_2:
         resIdNormal = R.raw.beatbox_snare2;
         resIdStrong = R.raw.beatbox_kick2;
         resIdSub = R.raw.beatbox_hihat2;
-        pitchStrong = Pitch.NORMAL;
-        pitchSub = Pitch.NORMAL;
+        pitchStrong = 0;
+        pitchSub = 0;
         break;
       case SOUND.HANDS:
         resIdNormal = R.raw.hands_hit;
         resIdStrong = R.raw.hands_clap;
         resIdSub = R.raw.hands_snap;
-        pitchStrong = Pitch.NORMAL;
-        pitchSub = Pitch.NORMAL;
+        pitchStrong = 0;
+        pitchSub = 0;
         break;
       case SOUND.FOLDING:
         resIdNormal = R.raw.folding_knock;
         resIdStrong = R.raw.folding_fold;
         resIdSub = R.raw.folding_tap;
-        pitchStrong = Pitch.NORMAL;
-        pitchSub = Pitch.NORMAL;
+        pitchStrong = 0;
+        pitchSub = 0;
         break;
       default:
         resIdNormal = R.raw.sine;
@@ -220,37 +631,116 @@ public class AudioEngine implements OnAudioFocusChangeListener {
         resIdSub = R.raw.sine;
         break;
     }
-    tickNormal = loadAudio(resIdNormal, pitchNormal);
-    tickStrong = loadAudio(resIdStrong, pitchStrong);
-    tickSub = loadAudio(resIdSub, pitchSub);
+    return new SoundSet(
+        loadAudio(resIdNormal, pitchNormal),
+        loadAudio(resIdStrong, pitchStrong),
+        loadAudio(resIdSub, pitchSub)
+    );
   }
 
+  /**
+   * Sets the master gain in dB, it is applied while rendering and followed by a soft limiter, so
+   * boosted ticks are compressed instead of clipped
+   */
   public void setGain(int gain) {
     this.gain = gain;
-    if (loudnessEnhancer != null) {
-      try {
-        loudnessEnhancer.setTargetGain(Math.max(0, gain * 100));
-        loudnessEnhancer.setEnabled(gain > 0);
-      } catch (RuntimeException e) {
-        Log.e(TAG, "setGain: failed to set target gain: ", e);
-      }
-    }
-    volumeReductionDb = Math.max(0, -gain * 100);
-    if (audioTrack != null) {
-      try {
-        audioTrack.setVolume(AudioUtil.dbToLinearVolume(volumeReductionDb));
-      } catch (IllegalStateException e) {
-        Log.e(TAG, "setGain: failed to set volume on AudioTrack: ", e);
-      }
-    }
+    updateLevels();
   }
 
   public int getGain() {
     return gain;
   }
 
+  /**
+   * Sets the gain in dB of the given tick type relative to the master gain
+   */
+  public void setAccentGain(String tickType, int gain) {
+    switch (tickType) {
+      case TICK_TYPE.STRONG:
+        gainStrong = gain;
+        break;
+      case TICK_TYPE.SUB:
+        gainSub = gain;
+        break;
+      default:
+        gainNormal = gain;
+        break;
+    }
+    updateLevels();
+  }
+
+  public int getAccentGain(String tickType) {
+    switch (tickType) {
+      case TICK_TYPE.STRONG:
+        return gainStrong;
+      case TICK_TYPE.SUB:
+        return gainSub;
+      default:
+        return gainNormal;
+    }
+  }
+
+  private void updateLevels() {
+    // all levels are applied together
+    sendCommand(COMMAND_LEVELS, 0, getLevels());
+  }
+
+  /**
+   * Returns the linear levels of strong, normal and sub ticks
+   */
+  private float[] getLevels() {
+    return new float[]{
+        AudioUtil.dbToLinearVolume(gain + gainStrong),
+        AudioUtil.dbToLinearVolume(gain + gainNormal),
+        AudioUtil.dbToLinearVolume(gain + gainSub)
+    };
+  }
+
   public void setMuted(boolean muted) {
-    this.muted = muted;
+    sendCommand(COMMAND_MUTED, muted ? 1 : 0, null);
+  }
+
+  /**
+   * Publishes a parameter change for the audio thread, it is applied at the start of the next
+   * period or right away if nothing is playing
+   */
+  private void sendCommand(int type, float value, @Nullable Object payload) {
+    if (!commandQueue.offer(type, value, payload)) {
+      Log.w(TAG, "sendCommand: queue is full, dropped command " + type);
+    }
+    audioHandler.post(applyCommandsRunnable);
+  }
+
+  private void applyCommands() {
+    commandQueue.drain(commandHandler);
+  }
+
+  private void applyCommand(int type, float value, @Nullable Object payload) {
+    switch (type) {
+      case COMMAND_LEVELS:
+        float[] levels = (float[]) payload;
+        levelStrong = levels[0];
+        levelNormal = levels[1];
+        levelSub = levels[2];
+        break;
+      case COMMAND_MUTED:
+        muted = value != 0;
+        break;
+      case COMMAND_SOUNDS:
+        SoundSet soundSet = (SoundSet) payload;
+        tickNormal = soundSet.normal;
+        tickStrong = soundSet.strong;
+        tickSub = soundSet.sub;
+        // free memory of previous sounds, entries would not match anymore anyway
+        periodCache.clear();
+        break;
+      case COMMAND_LAYERS:
+        polyrhythmLayers.setLayers((PolyrhythmLayers.Layer[]) payload);
+        break;
+      case COMMAND_POLYPHONY:
+        voiceMixer.setMaxPolyphony((int) value);
+        break;
+    }
   }
 
   public void setIgnoreFocus(boolean ignore) {
@@ -261,130 +751,314 @@ public class AudioEngine implements OnAudioFocusChangeListener {
     return ignoreFocus;
   }
 
-  public void writeTickPeriod(Tick tick, int tempo, int subdivisionCount) {
-    final int periodSize = 60 * SAMPLE_RATE_IN_HZ / tempo / subdivisionCount;
-    final long expectedTime = SystemClock.elapsedRealtime();
+  /**
+   * @param tickTime uptime in milliseconds at which the tick was scheduled
+   */
+  public void writeTickPeriod(Tick tick, long tickTime, int periodSize) {
+    final long postTime = System.nanoTime();
     audioHandler.post(() -> {
-      int periodSizeTrimmed = periodSize;
-      if (tick.subdivision == 1) {
-        long currentTime = SystemClock.elapsedRealtime();
-        long delay = currentTime - expectedTime;
-        if (delay > 1) {
-          int trimSize = (int) (Math.max(delay, 10) * (SAMPLE_RATE_IN_HZ / 1000));
-          periodSizeTrimmed = Math.max(0, periodSize - trimSize);
-        }
+      metrics.recordSchedulingLateness(System.nanoTime() - postTime);
+      applyCommands();
+      int periodSizeCorrected = periodSize
+          - phaseLock.getCorrection(framesWritten, tickTime, periodSize);
+      if (phaseLock.isLocked()) {
+        metrics.recordPhaseError(phaseLock.getErrorNanos());
       }
       float[] tickSound = muted || tick.isMuted ? silence : getTickSound(tick.type);
-      int sizeWritten = writeNextAudioData(tickSound, periodSizeTrimmed, 0);
+      long tickFrame = framesWritten;
+      writePeriod(
+          tickSound, getTickLevel(tick.type), periodSizeCorrected,
+          collectPulses(tick, periodSizeCorrected)
+      );
+      updateOutputLatency(tickFrame, tickTime);
       if (DEBUG) {
-        Log.v(TAG, "writeTickPeriod: wrote tick sound for tick " + tick);
+        Log.v(TAG, "writeTickPeriod: wrote tick period for tick " + tick);
       }
-      writeSilenceUntilPeriodFinished(sizeWritten, periodSizeTrimmed);
     });
   }
 
-  private void writeSilenceUntilPeriodFinished(int previousSizeWritten, int periodSize) {
-    int sizeWritten = previousSizeWritten;
-    while (sizeWritten < periodSize) {
-      sizeWritten += writeNextAudioData(silence, periodSize, sizeWritten);
+  public void startFrameClock(@NonNull FrameClockListener listener) {
+    int generation = ++frameClockGeneration;
+    audioHandler.post(() -> runFrameClock(listener, generation));
+  }
+
+  private void runFrameClock(FrameClockListener listener, int generation) {
+    // The audio thread owns the clock, blocking writes keep it in step with the hardware
+    framePosition = 0;
+    frameClockStartTime = SystemClock.uptimeMillis();
+    frameClockStartNanos = System.nanoTime();
+    int emptyTickCount = 0;
+    while (playing && generation == frameClockGeneration) {
+      Tick tick = listener.onFrameClockTick(framePosition);
+      if (tick == null) {
+        // scheduler was reset (e.g. next part), ask again for the same frame position
+        emptyTickCount++;
+        if (emptyTickCount > 1) {
+          // avoid spinning if the scheduler has nothing to play
+          writePeriod(silence, 1, SILENCE_CHUNK_SIZE, 0);
+          framePosition += SILENCE_CHUNK_SIZE;
+          emptyTickCount = 0;
+        }
+        continue;
+      }
+      emptyTickCount = 0;
+      // the period is late if its first frame should already be playing when writing starts
+      metrics.recordSchedulingLateness(
+          System.nanoTime() - frameClockStartNanos - framePosition * 1_000_000_000L / sampleRate
+      );
+      applyCommands();
+      float[] tickSound = muted || tick.isMuted ? silence : getTickSound(tick.type);
+      int periodSize = listener.getFrameClockPeriodSize();
       if (DEBUG) {
-        Log.v(TAG, "writeSilenceUntilPeriodFinished: wrote silence");
+        Log.v(TAG, "runFrameClock: tick " + tick + " at frame " + framePosition);
+      }
+      long tickTime = getFrameUptime(framePosition);
+      // the stream is the clock here, the phase against the uptime is only observed
+      if (phaseLock.measure(framesWritten, tickTime) && phaseLock.isLocked()) {
+        metrics.recordPhaseError(phaseLock.getErrorNanos());
       }
+      long tickFrame = framesWritten;
+      writePeriod(tickSound, getTickLevel(tick.type), periodSize, collectPulses(tick, periodSize));
+      updateOutputLatency(tickFrame, tickTime);
+      framePosition += periodSize;
     }
   }
 
-  private int writeNextAudioData(float[] data, int periodSize, int sizeWritten) {
-    int size = Math.min(data.length, periodSize - sizeWritten);
-    if (playing) {
-      writeAudio(data, size);
+  public long getFramePosition() {
+    return framePosition;
+  }
+
+  /**
+   * Returns the uptime in milliseconds at which the given frame of the frame clock is played,
+   * without any output latency.
+   */
+  public long getFrameUptime(long framePosition) {
+    return frameClockStartTime + framePosition * 1000 / sampleRate;
+  }
+
+  /**
+   * Collects the pulses of the polyrhythm layers in the period of the tick
+   *
+   * @return number of pulses collected in the polyrhythm layers
+   */
+  private int collectPulses(Tick tick, int periodSize) {
+    if (muted || tick.isMuted || polyrhythmLayers.isEmpty()) {
+      return 0;
     }
-    return size;
+    return polyrhythmLayers.collect(tick.index, tick.ticksPerBar, periodSize);
   }
 
-  private float[] getTickSound(String tickType) {
+  /**
+   * Writes the period directly from the period cache if possible. Else the tick sound, the tails
+   * of previous ticks and the pulses of the polyrhythm layers are mixed by the period renderer.
+   *
+   * @param level      linear level of the tick sound, the mix is soft limited afterwards
+   * @param pulseCount number of pulses collected in the polyrhythm layers for this period
+   */
+  private void writePeriod(float[] tickSound, float level, int periodSize, int pulseCount) {
+    long startTime = System.nanoTime();
+    float[] period = null;
+    if (pulseCount == 0 && voiceMixer.isIdle() && tickSound.length <= periodSize) {
+      // nothing overlaps, the period is always the same for this tick sound
+      period = periodCache.get(tickSound, periodSize, level);
+    }
+    if (period != null) {
+      if (audioSink.write(period, periodSize)) {
+        metrics.recordWriteDuration(System.nanoTime() - startTime);
+      }
+      return;
+    }
+    // tails of previous ticks or a sound longer than the period need to be mixed
+    int sizeWritten = periodRenderer.render(
+        audioSink, tickSound, level, periodSize, pulseCount, levelNormal
+    );
+    if (sizeWritten > 0) {
+      metrics.recordWriteDuration(System.nanoTime() - startTime);
+    }
+  }
+
+  private float[] getTickSound(byte tickType) {
     switch (tickType) {
-      case TICK_TYPE.STRONG:
+      case TickPattern.STRONG:
         return tickStrong;
-      case TICK_TYPE.SUB:
+      case TickPattern.SUB:
         return tickSub;
-      case TICK_TYPE.MUTED:
+      case TickPattern.MUTED:
         return silence;
       default:
         return tickNormal;
     }
   }
 
-  private static AudioTrack getTrack() {
+  /**
+   * Returns a renderer with the current sounds, levels and polyphony of this engine
+   */
+  public OfflineRenderer createOfflineRenderer() {
+    return new OfflineRenderer(
+        soundSet,
+        this::getLayerSound,
+        getLevels(),
+        sampleRate,
+        maxPolyphony,
+        sampleRate * VOICE_FADE_DURATION / 1000
+    );
+  }
+
+  private float getTickLevel(byte tickType) {
+    switch (tickType) {
+      case TickPattern.STRONG:
+        return levelStrong;
+      case TickPattern.SUB:
+        return levelSub;
+      default:
+        return levelNormal;
+    }
+  }
+
+  private AudioTrack getTrack(boolean lowLatency) {
     AudioFormat audioFormat = new AudioFormat.Builder()
         .setEncoding(AudioFormat.ENCODING_PCM_FLOAT)
-        .setSampleRate(SAMPLE_RATE_IN_HZ)
+        .setSampleRate(sampleRate)
         .setChannelMask(AudioFormat.CHANNEL_OUT_MONO)
         .build();
+    int minBufferSize = AudioTrack.getMinBufferSize(
+        audioFormat.getSampleRate(), audioFormat.getChannelMask(), audioFormat.getEncoding()
+    );
+    if (lowLatency && isLowLatencySupported()) {
+      // capacity leaves room for growing on underruns, the used size starts at two bursts
+      int capacity = Math.max(minBufferSize, burstSize * LOW_LATENCY_BURSTS_MAX * Float.BYTES);
+      AudioTrack track = new AudioTrack.Builder()
+          .setAudioAttributes(AudioUtil.getAttributes())
+          .setAudioFormat(audioFormat)
+          .setBufferSizeInBytes(capacity)
+          .setTransferMode(AudioTrack.MODE_STREAM)
+          .setPerformanceMode(AudioTrack.PERFORMANCE_MODE_LOW_LATENCY)
+          .build();
+      track.setBufferSizeInFrames(burstSize * LOW_LATENCY_BURSTS_MIN);
+      return track;
+    }
     return new AudioTrack(
         AudioUtil.getAttributes(),
         audioFormat,
-        AudioTrack.getMinBufferSize(
-            audioFormat.getSampleRate(), audioFormat.getChannelMask(), audioFormat.getEncoding()
-        ),
+        minBufferSize,
         AudioTrack.MODE_STREAM,
         AudioManager.AUDIO_SESSION_ID_GENERATE
     );
   }
 
-  private float[] loadAudio(@RawRes int resId, Pitch pitch) {
-    try (InputStream stream = context.getResources().openRawResource(resId)) {
-      return adjustPitch(AudioUtil.readDataFromWavFloat(stream), pitch);
-    } catch (IOException e) {
-      throw new RuntimeException(e);
-    }
+  /**
+   * Returns the sample rate of the engine in Hz, the native output rate of the device
+   */
+  public int getSampleRate() {
+    return sampleRate;
   }
 
-  private float[] adjustPitch(float[] originalData, Pitch pitch) {
-    if (pitch == Pitch.HIGH) {
-      float[] newData = new float[originalData.length / 2];
-      for (int i = 0; i < newData.length; i++) {
-        newData[i] = originalData[i * 2];
-      }
-      return newData;
-    } else if (pitch == Pitch.LOW) {
-      float[] newData = new float[originalData.length * 2];
-      for (int i = 0, j = 0; i < originalData.length; i++, j += 2) {
-        newData[j] = originalData[i];
-        newData[j + 1] = originalData[i];
+  private static int getNativeSampleRate(AudioManager audioManager) {
+    String outputSampleRate = audioManager.getProperty(AudioManager.PROPERTY_OUTPUT_SAMPLE_RATE);
+    try {
+      int sampleRate = outputSampleRate != null ? Integer.parseInt(outputSampleRate) : 0;
+      if (sampleRate >= SAMPLE_RATE_MIN && sampleRate <= SAMPLE_RATE_MAX) {
+        return sampleRate;
       }
-      return newData;
-    } else {
-      return originalData;
+    } catch (NumberFormatException e) {
+      Log.e(TAG, "getNativeSampleRate: invalid sample rate: " + outputSampleRate, e);
+    }
+    return SAMPLE_RATE_DEFAULT;
+  }
+
+  private static int getBurstSize(AudioManager audioManager) {
+    String framesPerBuffer = audioManager.getProperty(
+        AudioManager.PROPERTY_OUTPUT_FRAMES_PER_BUFFER
+    );
+    try {
+      int burstSize = framesPerBuffer != null ? Integer.parseInt(framesPerBuffer) : 0;
+      return burstSize > 0 ? burstSize : BURST_SIZE_DEFAULT;
+    } catch (NumberFormatException e) {
+      return BURST_SIZE_DEFAULT;
+    }
+  }
+
+  private SoundSet loadCustomSoundSet() {
+    // tick types without imported sample use the default sound
+    SoundSet fallback = loadSoundSet(DEF.SOUND);
+    CustomSoundUtil customSoundUtil = new CustomSoundUtil(context);
+    return new SoundSet(
+        loadCustomAudio(customSoundUtil, TICK_TYPE.NORMAL, fallback.normal),
+        loadCustomAudio(customSoundUtil, TICK_TYPE.STRONG, fallback.strong),
+        loadCustomAudio(customSoundUtil, TICK_TYPE.SUB, fallback.sub)
+    );
+  }
+
+  private float[] loadCustomAudio(
+      CustomSoundUtil customSoundUtil, String tickType, float[] fallback
+  ) {
+    WavData wav = customSoundUtil.readSample(tickType);
+    if (wav == null) {
+      return fallback;
+    }
+    // samples are already converted on import, unless the output rate changed since then
+    return ResampleUtil.resample(wav.data, wav.sampleRate, sampleRate);
+  }
+
+  private float[] loadAudio(@RawRes int resId, int pitch) {
+    String name = context.getResources().getResourceEntryName(resId);
+    float[] cached = pcmFileCache.get(name, sampleRate, pitch);
+    if (cached != null) {
+      return cached;
+    }
+    try (InputStream stream = context.getResources().openRawResource(resId)) {
+      WavData wav = WavUtil.readWav(stream);
+      // pitch and sample rate conversion in a single pass
+      double factor = (double) sampleRate / wav.sampleRate * ResampleUtil.getPitchFactor(pitch);
+      float[] data = factor == 1 ? wav.data : ResampleUtil.resample(wav.data, factor);
+      pcmFileCache.put(name, sampleRate, pitch, data);
+      return data;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
     }
   }
 
   private void writeAudio(float[] data, int size) {
     try {
-      boolean reduceVolume = gain < 0;
-      float[] scaled = new float[size];
-      if (reduceVolume) {
-        float fraction = 1 - ((float) Math.abs(gain * 4) / 100);
-        for (int i = 0; i < size; i++) {
-          scaled[i] = data[i] * fraction;
-        }
-      }
-      int result = audioTrack.write(
-          reduceVolume ? scaled : data, 0, size, AudioTrack.WRITE_BLOCKING
-      );
+      int result = audioTrack.write(data, 0, size, AudioTrack.WRITE_BLOCKING);
       if (result < 0) {
         stop();
         throw new IllegalStateException("Error code: " + result);
       }
+      framesWritten += result;
+      boolean underrun = false;
+      if (VERSION.SDK_INT >= VERSION_CODES.N) {
+        int underrunCount = audioTrack.getUnderrunCount();
+        if (underrunCount > lastUnderrunCount) {
+          metrics.addUnderruns(underrunCount - lastUnderrunCount);
+          lastUnderrunCount = underrunCount;
+          underrun = true;
+        }
+      }
+      if (trackLowLatency) {
+        tuneBufferSize(underrun);
+      }
     } catch (Exception e) {
       Log.e(TAG, "writeAudio: failed to play audion data", e);
     }
   }
 
-  private enum Pitch {
-    NORMAL, HIGH, LOW
-  }
-
   public interface AudioListener {
     void onAudioStop();
   }
+
+  public interface FrameClockListener {
+    /**
+     * Called on the audio thread when the frame clock reaches the next tick.
+     * Returning null means that no tick should be played at this frame position.
+     */
+    @Nullable
+    Tick onFrameClockTick(long framePosition);
+
+    /**
+     * Returns the number of frames until the next tick, called directly after a tick was
+     * returned by onFrameClockTick.
+     */
+    int getFrameClockPeriodSize();
+  }
 }
\ No newline at end of file
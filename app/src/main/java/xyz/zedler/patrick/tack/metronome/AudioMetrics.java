@@ -0,0 +1,207 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.metronome;
+
+import androidx.annotation.NonNull;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Collects timing statistics of the audio thread to diagnose stuttering on specific devices.
+ * Recording does not allocate or lock, so it can be called for every written period, and reading
+ * from another thread never blocks the audio thread. A reader may see the values of one record
+ * only partially applied, which is negligible for statistics.
+ */
+public class AudioMetrics {
+
+  // upper bounds of the histogram buckets in microseconds, the last bucket is unbounded
+  private static final long[] BUCKET_BOUNDS = new long[]{
+      250, 500, 1000, 2000, 4000, 8000, 16000, 32000, 64000, 128000
+  };
+
+  private final Histogram writeDuration = new Histogram();
+  private final Histogram schedulingLateness = new Histogram();
+  private final Histogram phaseError = new Histogram();
+  private final AtomicLong underrunCount = new AtomicLong();
+
+  public void recordWriteDuration(long durationNanos) {
+    writeDuration.record(durationNanos / 1000);
+  }
+
+  public void recordSchedulingLateness(long latenessNanos) {
+    schedulingLateness.record(Math.max(0, latenessNanos) / 1000);
+  }
+
+  /**
+   * Records the residual phase error of the written stream against the scheduler clock, the
+   * histogram contains the absolute value
+   */
+  public void recordPhaseError(long errorNanos) {
+    phaseError.record(Math.abs(errorNanos) / 1000);
+  }
+
+  public void addUnderruns(int count) {
+    underrunCount.addAndGet(count);
+  }
+
+  public long getUnderrunCount() {
+    return underrunCount.get();
+  }
+
+  @NonNull
+  public Histogram getWriteDuration() {
+    return writeDuration;
+  }
+
+  @NonNull
+  public Histogram getSchedulingLateness() {
+    return schedulingLateness;
+  }
+
+  @NonNull
+  public Histogram getPhaseError() {
+    return phaseError;
+  }
+
+  public void reset() {
+    writeDuration.reset();
+    schedulingLateness.reset();
+    phaseError.reset();
+    underrunCount.set(0);
+  }
+
+  @NonNull
+  @Override
+  public String toString() {
+    return "Underruns: " + getUnderrunCount()
+        + "\nWrite duration:\n" + writeDuration
+        + "\nScheduling lateness:\n" + schedulingLateness
+        + "\nPhase error:\n" + phaseError;
+  }
+
+  public static class Histogram {
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    public void record(long valueMicros) {
+      int bucket = 0;
+      while (bucket < BUCKET_BOUNDS.length && valueMicros > BUCKET_BOUNDS[bucket]) {
+        bucket++;
+      }
+      counts.incrementAndGet(bucket);
+      total.incrementAndGet();
+      sum.addAndGet(valueMicros);
+      long max = this.max.get();
+      while (valueMicros > max && !this.max.compareAndSet(max, valueMicros)) {
+        max = this.max.get();
+      }
+    }
+
+    public void reset() {
+      for (int i = 0; i < counts.length(); i++) {
+        counts.set(i, 0);
+      }
+      total.set(0);
+      sum.set(0);
+      max.set(0);
+    }
+
+    public long getCount() {
+      return total.get();
+    }
+
+    /**
+     * Returns the mean value in microseconds
+     */
+    public long getMean() {
+      long total = this.total.get();
+      return total > 0 ? sum.get() / total : 0;
+    }
+
+    /**
+     * Returns the maximum value in microseconds
+     */
+    public long getMax() {
+      return max.get();
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given percentile in microseconds,
+     * or the maximum if the percentile is in the unbounded bucket
+     */
+    public long getPercentile(double percentile) {
+      long threshold = (long) Math.ceil(total.get() * percentile / 100);
+      long max = this.max.get();
+      long count = 0;
+      for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+        count += counts.get(i);
+        if (count >= threshold) {
+          return Math.min(BUCKET_BOUNDS[i], max);
+        }
+      }
+      return max;
+    }
+
+    /**
+     * Returns a copy of the bucket counts, see {@link #getBucketBounds()}
+     */
+    public long[] getCounts() {
+      long[] counts = new long[this.counts.length()];
+      for (int i = 0; i < counts.length; i++) {
+        counts[i] = this.counts.get(i);
+      }
+      return counts;
+    }
+
+    public static long[] getBucketBounds() {
+      return BUCKET_BOUNDS.clone();
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+      long[] counts = getCounts();
+      StringBuilder builder = new StringBuilder(String.format(
+          Locale.ENGLISH, "n=%d mean=%.2fms p99<=%.2fms max=%.2fms",
+          getCount(), getMean() / 1000f, getPercentile(99) / 1000f, getMax() / 1000f
+      ));
+      for (int i = 0; i < counts.length; i++) {
+        if (counts[i] == 0) {
+          continue;
+        }
+        builder.append('\n');
+        if (i < BUCKET_BOUNDS.length) {
+          builder.append(String.format(
+              Locale.ENGLISH, "  <=%.2fms: %d", BUCKET_BOUNDS[i] / 1000f, counts[i]
+          ));
+        } else {
+          builder.append(String.format(
+              Locale.ENGLISH, "  >%.2fms: %d", BUCKET_BOUNDS[i - 1] / 1000f, counts[i]
+          ));
+        }
+      }
+      return builder.toString();
+    }
+  }
+}
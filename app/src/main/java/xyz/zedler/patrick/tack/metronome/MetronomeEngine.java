@@ -24,10 +24,12 @@ import android.content.SharedPreferences;
 import android.content.pm.ShortcutInfo;
 import android.os.Handler;
 import android.os.HandlerThread;
+import android.os.SystemClock;
 import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.preference.PreferenceManager;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.util.ArrayList;
@@ -42,17 +44,24 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import xyz.zedler.patrick.tack.Constants;
 import xyz.zedler.patrick.tack.Constants.BEAT_MODE;
+import xyz.zedler.patrick.tack.Constants.CURVE;
 import xyz.zedler.patrick.tack.Constants.DEF;
 import xyz.zedler.patrick.tack.Constants.PREF;
 import xyz.zedler.patrick.tack.Constants.SONGS_ORDER;
 import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
 import xyz.zedler.patrick.tack.Constants.UNIT;
 import xyz.zedler.patrick.tack.R;
+import xyz.zedler.patrick.tack.core.PeriodGenerator;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers;
+import xyz.zedler.patrick.tack.core.TempoRamp;
 import xyz.zedler.patrick.tack.database.SongDatabase;
 import xyz.zedler.patrick.tack.database.entity.Part;
 import xyz.zedler.patrick.tack.database.entity.Song;
 import xyz.zedler.patrick.tack.database.relations.SongWithParts;
+import xyz.zedler.patrick.tack.metronome.AudioEngine.FrameClockListener;
+import xyz.zedler.patrick.tack.metronome.OfflineRenderer.RenderListener;
 import xyz.zedler.patrick.tack.model.MetronomeConfig;
+import xyz.zedler.patrick.tack.model.TickPattern;
 import xyz.zedler.patrick.tack.util.HapticUtil;
 import xyz.zedler.patrick.tack.util.NotificationUtil;
 import xyz.zedler.patrick.tack.util.ShortcutUtil;
@@ -72,20 +81,50 @@ public class MetronomeEngine {
   private final ExecutorService executorService = Executors.newSingleThreadExecutor();
   private final Random random = new Random();
   private final MetronomeConfig config = new MetronomeConfig();
+  // newer preparations of the next part replace older ones still running on the executor
+  private final Object nextPartLock = new Object();
+  private final PeriodGenerator periodGenerator;
+  private final TempoRamp tempoRamp;
   private final SongDatabase db;
   private HandlerThread tickThread, callbackThread;
   private Handler tickHandler, latencyHandler;
-  private Handler countInHandler, incrementalHandler, elapsedHandler, timerHandler, muteHandler;
+  private Handler countInHandler, elapsedHandler, timerHandler, muteHandler;
   private SongWithParts currentSongWithParts;
+  private volatile MetronomeConfig nextPartConfig;
+  private volatile PolyrhythmLayers.Layer[] nextPartLayers;
+  private int nextPartGeneration;
+  // the ramp is only touched by the thread performing the ticks, others request a reset
+  private volatile boolean tempoRampResetPending;
   private String beatMode, currentSongId, timerStringBars, keepAwake, flashScreen;
-  private int currentPartIndex, muteCountDown, songsOrder;
-  private long tickIndex, latency, countInStartTime, timerStartTime;
+  private int currentPartIndex, muteCountDown, songsOrder, tickTempoHundredths;
+  private long tickIndex, latency, latencyTrim, countInStartTime, timerStartTime;
   private long elapsedStartTime, elapsedTime, elapsedPrevious;
   private float timerProgress;
   private boolean playing, tempPlaying, isCountingIn, isMuted;
   private boolean showElapsed, resetTimerOnStop, tempoInputKeyboard, tempoTapInstant;
   private boolean neverStartedWithGain = true;
   private boolean ignoreTimerCallbacksTemp, isSongPickerExpanded;
+  private boolean frameClock, frameClockRunning, latencyAuto;
+  private volatile boolean partEndPending, partFinishing;
+  private final FrameClockListener frameClockListener = new FrameClockListener() {
+    @Nullable
+    @Override
+    public Tick onFrameClockTick(long framePosition) {
+      if (!isPlaying()) {
+        return null;
+      }
+      Tick tick = performTick(audioEngine.getFrameUptime(framePosition));
+      if (tick != null) {
+        tickIndex++;
+      }
+      return tick;
+    }
+
+    @Override
+    public int getFrameClockPeriodSize() {
+      return nextPeriodSize();
+    }
+  };
 
   public MetronomeEngine(@NonNull Context context) {
     this.context = context;
@@ -93,6 +132,10 @@ public class MetronomeEngine {
     sharedPrefs = PreferenceManager.getDefaultSharedPreferences(context);
 
     audioEngine = new AudioEngine(context, this::stop);
+    periodGenerator = new PeriodGenerator(audioEngine.getSampleRate());
+    tempoRamp = new TempoRamp(
+        audioEngine.getSampleRate(), Constants.TEMPO_MIN, Constants.TEMPO_MAX
+    );
     hapticUtil = new HapticUtil(context);
     shortcutUtil = new ShortcutUtil(context);
 
@@ -107,6 +150,8 @@ public class MetronomeEngine {
     MetronomeConfig configTmp = new MetronomeConfig(config);
 
     latency = sharedPrefs.getLong(PREF.LATENCY, DEF.LATENCY);
+    latencyAuto = sharedPrefs.getBoolean(PREF.LATENCY_AUTO, DEF.LATENCY_AUTO);
+    latencyTrim = sharedPrefs.getLong(PREF.LATENCY_TRIM, DEF.LATENCY_TRIM);
     showElapsed = sharedPrefs.getBoolean(PREF.SHOW_ELAPSED, DEF.SHOW_ELAPSED);
     resetTimerOnStop = sharedPrefs.getBoolean(PREF.RESET_TIMER_ON_STOP, DEF.RESET_TIMER_ON_STOP);
     flashScreen = sharedPrefs.getString(PREF.FLASH_SCREEN, DEF.FLASH_SCREEN);
@@ -116,10 +161,18 @@ public class MetronomeEngine {
         PREF.TEMPO_INPUT_KEYBOARD, DEF.TEMPO_INPUT_KEYBOARD
     );
     tempoTapInstant = sharedPrefs.getBoolean(PREF.TEMPO_TAP_INSTANT, DEF.TEMPO_TAP_INSTANT);
+    frameClock = sharedPrefs.getBoolean(PREF.FRAME_CLOCK, DEF.FRAME_CLOCK);
 
     setSound(sharedPrefs.getString(PREF.SOUND, DEF.SOUND));
+    audioEngine.setLayers(config.getLayers());
     setIgnoreFocus(sharedPrefs.getBoolean(PREF.IGNORE_FOCUS, DEF.IGNORE_FOCUS));
+    setLowLatency(sharedPrefs.getBoolean(PREF.LOW_LATENCY, DEF.LOW_LATENCY));
+    setMaxPolyphony(sharedPrefs.getInt(PREF.POLYPHONY, DEF.POLYPHONY));
+    setWarmTrack(sharedPrefs.getBoolean(PREF.WARM_TRACK, DEF.WARM_TRACK));
     setGain(sharedPrefs.getInt(PREF.GAIN, DEF.GAIN));
+    setAccentGain(TICK_TYPE.STRONG, sharedPrefs.getInt(PREF.GAIN_STRONG, DEF.GAIN_STRONG));
+    setAccentGain(TICK_TYPE.NORMAL, sharedPrefs.getInt(PREF.GAIN_NORMAL, DEF.GAIN_NORMAL));
+    setAccentGain(TICK_TYPE.SUB, sharedPrefs.getInt(PREF.GAIN_SUB, DEF.GAIN_SUB));
     setBeatMode(sharedPrefs.getString(PREF.BEAT_MODE, DEF.BEAT_MODE));
     setCurrentSong(
         sharedPrefs.getString(PREF.SONG_CURRENT_ID, DEF.SONG_CURRENT_ID),
@@ -147,12 +200,14 @@ public class MetronomeEngine {
 
     setBeats(config.getBeats());
     setSubdivisions(config.getSubdivisions());
+    setLayers(config.getLayers());
 
     setIncrementalAmount(config.getIncrementalAmount());
     setIncrementalInterval(config.getIncrementalInterval());
     setIncrementalLimit(config.getIncrementalLimit());
     setIncrementalUnit(config.getIncrementalUnit());
     setIncrementalIncrease(config.isIncrementalIncrease());
+    setIncrementalCurve(config.getIncrementalCurve());
 
     setTimerDuration(config.getTimerDuration(), restart);
     setTimerUnit(config.getTimerUnit());
@@ -278,6 +333,138 @@ public class MetronomeEngine {
         < currentSongWithParts.getParts().size() - 1;
   }
 
+  /**
+   * @return index of the part following the current one, 0 for looped songs, -1 if none follows
+   */
+  private int getNextPartIndex() {
+    if (hasNextPart()) {
+      return currentPartIndex + 1;
+    } else if (currentSongWithParts != null && currentSongWithParts.getSong().isLooped()) {
+      return 0;
+    }
+    return -1;
+  }
+
+  /**
+   * Converts the following part ahead of the part boundary, the scheduler switches to it without
+   * database access, sound decoding or a restart. The layer sounds may have to be decoded, so the
+   * part is prepared on the executor and published when it is ready. Until then, the end of the
+   * current part falls back to a restart.
+   */
+  private void prepareNextPart() {
+    SongWithParts songWithParts = currentSongWithParts;
+    int nextIndex = getNextPartIndex();
+    int generation;
+    synchronized (nextPartLock) {
+      generation = ++nextPartGeneration;
+      nextPartConfig = null;
+      nextPartLayers = null;
+    }
+    if (songWithParts == null || nextIndex < 0 || nextIndex >= songWithParts.getParts().size()) {
+      return;
+    }
+    executorService.execute(() -> {
+      MetronomeConfig nextConfig = songWithParts.getParts().get(nextIndex).toConfig();
+      PolyrhythmLayers.Layer[] nextLayers = audioEngine.prepareLayers(nextConfig.getLayers());
+      synchronized (nextPartLock) {
+        if (generation != nextPartGeneration) {
+          // the song or part changed in the meantime
+          return;
+        }
+        // layers first, the scheduler only checks the config
+        nextPartLayers = nextLayers;
+        nextPartConfig = nextConfig;
+      }
+    });
+  }
+
+  /**
+   * Applies the prepared next part in the scheduler, the first tick of the part is played at the
+   * frame at which the last bar of the current part ends. Preferences, handlers and listeners
+   * follow on the callback thread when the switch is audible.
+   *
+   * @return false if the next part is not prepared, the caller falls back to a restart
+   */
+  private boolean switchToNextPart(long tickTime) {
+    MetronomeConfig nextConfig = nextPartConfig;
+    PolyrhythmLayers.Layer[] nextLayers = nextPartLayers;
+    int nextIndex = getNextPartIndex();
+    if (nextConfig == null || nextLayers == null || nextIndex < 0) {
+      return false;
+    }
+    nextPartConfig = null;
+    nextPartLayers = null;
+    partEndPending = false;
+    int tempoOld = config.getTempo();
+    config.setToConfig(nextConfig);
+    audioEngine.setLayers(config.getLayers(), nextLayers);
+    currentPartIndex = nextIndex;
+    // like a restart, the count-in is skipped
+    int countInTickIndex = config.getCountIn() *
+        config.getBeatsCount() * config.getSubdivisionsCount();
+    tickIndex = config.isCountInActive() ? countInTickIndex : 0;
+    resetTempoRamp();
+    timerProgress = 0;
+    isMuted = false;
+    if (config.isMuteActive()) {
+      muteCountDown = calculateMuteCount(false);
+    }
+    latencyHandler.postAtTime(
+        () -> onPartSwitched(tempoOld), tickTime + getEffectiveLatency()
+    );
+    return true;
+  }
+
+  /**
+   * Fallback for the end of a part without a prepared next part, restarts with the following part
+   * or stops at the end of the song
+   */
+  private void finishPart() {
+    if (hasNextPart()) {
+      setCurrentPartIndex(currentPartIndex + 1, true);
+    } else if (currentSongWithParts != null && currentSongWithParts.getSong().isLooped()) {
+      // Restart song
+      setCurrentPartIndex(0, true);
+    } else {
+      stop();
+      if (currentSongWithParts != null) {
+        setCurrentPartIndex(0, false);
+      }
+    }
+  }
+
+  /**
+   * Hands the end of the part over to the timer thread, the scheduler is called on the audio
+   * thread with the frame clock. Until the next start or restart, the scheduler produces no more
+   * ticks.
+   */
+  private void postFinishPart() {
+    partFinishing = true;
+    timerHandler.post(this::finishPart);
+  }
+
+  private void onPartSwitched(int tempoOld) {
+    config.saveToPreferences(sharedPrefs);
+    sharedPrefs.edit().putInt(PREF.PART_CURRENT_INDEX, currentPartIndex).apply();
+    prepareNextPart();
+    if (!isPlaying()) {
+      return;
+    }
+    // progress is already counted by the scheduler, only the handlers are restarted
+    timerStartTime = System.currentTimeMillis();
+    updateTimerHandler(false, false);
+    updateMuteHandler();
+    synchronized (listeners) {
+      for (MetronomeListener listener : listeners) {
+        listener.onMetronomeConfigChanged();
+        if (tempoOld != config.getTempo()) {
+          listener.onMetronomeTempoChanged(tempoOld, config.getTempo());
+        }
+        listener.onMetronomeSongOrPartChanged(currentSongWithParts, currentPartIndex);
+      }
+    }
+  }
+
   public void setCurrentPartIndex(int index, boolean restart) {
     setCurrentPartIndex(index, restart, false);
   }
@@ -301,6 +488,7 @@ public class MetronomeEngine {
         restartIfPlaying(true);
       }
       sharedPrefs.edit().putInt(PREF.PART_CURRENT_INDEX, index).apply();
+      prepareNextPart();
     } else {
       Log.e(
           TAG, "setCurrentPartIndex: no part found for song with id='" + currentSongId + "'"
@@ -327,7 +515,6 @@ public class MetronomeEngine {
       removeHandlerCallbacks();
       latencyHandler = new Handler(callbackThread.getLooper());
       countInHandler = new Handler(callbackThread.getLooper());
-      incrementalHandler = new Handler(callbackThread.getLooper());
       elapsedHandler = new Handler(callbackThread.getLooper());
       timerHandler = new Handler(callbackThread.getLooper());
       muteHandler = new Handler(callbackThread.getLooper());
@@ -341,7 +528,6 @@ public class MetronomeEngine {
     if (latencyHandler != null) {
       latencyHandler.removeCallbacksAndMessages(null);
       countInHandler.removeCallbacksAndMessages(null);
-      incrementalHandler.removeCallbacksAndMessages(null);
       elapsedHandler.removeCallbacksAndMessages(null);
       timerHandler.removeCallbacksAndMessages(null);
       muteHandler.removeCallbacksAndMessages(null);
@@ -364,6 +550,8 @@ public class MetronomeEngine {
     config.setTempo(80);
     config.setBeats(DEF.BEATS);
     config.setSubdivisions(DEF.SUBDIVISIONS);
+    config.setLayers(DEF.LAYERS);
+    audioEngine.setLayers(config.getLayers());
     config.setCountIn(0);
     config.setIncrementalAmount(0);
     config.setTimerDuration(0);
@@ -418,32 +606,26 @@ public class MetronomeEngine {
     playing = true;
     audioEngine.play();
     tickIndex = 0;
+    partEndPending = false;
+    partFinishing = false;
+    periodGenerator.reset();
+    resetTempoRamp();
     isMuted = false;
     if (config.isMuteActive()) {
       // updateMuteHandler would be too late
       muteCountDown = calculateMuteCount(false);
     }
-    tickHandler.post(new Runnable() {
-      @Override
-      public void run() {
-        if (isPlaying()) {
-          Tick tick = performTick();
-          if (tick != null) {
-            tickHandler.postDelayed(
-                this, getInterval() / config.getSubdivisionsCount()
-            );
-            audioEngine.writeTickPeriod(tick, config.getTempo(), config.getSubdivisionsCount());
-            tickIndex++;
-          }
-        }
-      }
-    });
+    frameClockRunning = frameClock;
+    if (frameClockRunning) {
+      audioEngine.startFrameClock(frameClockListener);
+    } else {
+      postTicks();
+    }
 
     isCountingIn = config.isCountInActive();
     countInStartTime = System.currentTimeMillis();
     countInHandler.postDelayed(() -> {
       isCountingIn = false;
-      updateIncrementalHandler();
       elapsedStartTime = System.currentTimeMillis();
       updateElapsedHandler(false);
       timerStartTime = System.currentTimeMillis();
@@ -522,28 +704,19 @@ public class MetronomeEngine {
       int countInTickIndex = config.getCountIn() *
           config.getBeatsCount() * config.getSubdivisionsCount();
       tickIndex = config.isCountInActive() ? countInTickIndex : 0;
+      partEndPending = false;
+      partFinishing = false;
+      resetTempoRamp();
       isMuted = false;
       if (config.isMuteActive()) {
         // updateMuteHandler would be too late
         muteCountDown = calculateMuteCount(false);
       }
-      tickHandler.post(new Runnable() {
-        @Override
-        public void run() {
-          if (isPlaying()) {
-            Tick tick = performTick();
-            if (tick != null) {
-              tickHandler.postDelayed(
-                  this, getInterval() / config.getSubdivisionsCount()
-              );
-              audioEngine.writeTickPeriod(tick, config.getTempo(), config.getSubdivisionsCount());
-              tickIndex++;
-            }
-          }
-        }
-      });
+      if (!frameClockRunning) {
+        // the frame clock picks up the new state at the end of the current period
+        postTicks();
+      }
       isCountingIn = false;
-      updateIncrementalHandler();
       elapsedStartTime = System.currentTimeMillis();
       updateElapsedHandler(false);
       timerStartTime = System.currentTimeMillis();
@@ -566,6 +739,31 @@ public class MetronomeEngine {
     return playing;
   }
 
+  private void postTicks() {
+    // deadlines are derived from the frames scheduled since this start, so the execution time
+    // of a tick and the latency of the looper never accumulate
+    long startTime = SystemClock.uptimeMillis();
+    int sampleRate = audioEngine.getSampleRate();
+    tickHandler.post(new Runnable() {
+      private long framesScheduled;
+
+      @Override
+      public void run() {
+        if (isPlaying()) {
+          long tickTime = startTime + framesScheduled * 1000 / sampleRate;
+          Tick tick = performTick(tickTime);
+          if (tick != null) {
+            int periodSize = nextPeriodSize();
+            framesScheduled += periodSize;
+            tickHandler.postAtTime(this, startTime + framesScheduled * 1000 / sampleRate);
+            audioEngine.writeTickPeriod(tick, tickTime, periodSize);
+            tickIndex++;
+          }
+        }
+      }
+    });
+  }
+
   private void updateLastPlayedAndPlayCount() {
     executorService.execute(() -> {
       if (currentSongWithParts != null && !currentSongId.equals(Constants.SONG_ID_DEFAULT)) {
@@ -669,6 +867,20 @@ public class MetronomeEngine {
     return success;
   }
 
+  private void setLayers(String[] layers) {
+    config.setLayers(layers);
+    audioEngine.setLayers(layers);
+    sharedPrefs.edit().putString(PREF.LAYERS, String.join(",", layers)).apply();
+  }
+
+  /**
+   * Sets the number of pulses of a polyrhythm layer over one bar, 0 disables the layer
+   */
+  public void setLayerPulses(int layer, int pulses) {
+    config.setLayerPulses(layer, pulses);
+    setLayers(config.getLayers());
+  }
+
   public void setSwing3() {
     config.setSwing3();
     setSubdivisions(config.getSubdivisions());
@@ -685,19 +897,39 @@ public class MetronomeEngine {
   }
 
   public void setTempo(int tempo) {
-    if (config.getTempo() != tempo) {
-      config.setTempo(tempo);
-      sharedPrefs.edit().putInt(PREF.TEMPO, tempo).apply();
+    setTempo(tempo, 0);
+    // a running ramp continues from the new tempo
+    resetTempoRamp();
+  }
+
+  public void setTempoExact(double tempoExact) {
+    int hundredths = (int) Math.round(tempoExact * 100);
+    setTempo(hundredths / 100, hundredths % 100);
+    resetTempoRamp();
+  }
+
+  private void setTempo(int tempo, int tempoDecimals) {
+    if (config.getTempo() != tempo || config.getTempoDecimals() != tempoDecimals) {
+      config.setTempoHundredths(tempo * 100 + tempoDecimals);
+      sharedPrefs.edit()
+          .putInt(PREF.TEMPO, tempo)
+          .putInt(PREF.TEMPO_DECIMALS, tempoDecimals)
+          .apply();
       if (isPlaying() && config.isTimerActive() && config.getTimerUnit().equals(UNIT.BARS)) {
         updateTimerHandler(false, true, false);
       }
     }
   }
 
-  private void changeTempo(int change) {
+  /**
+   * Applies a tempo of the ramp and notifies the listeners
+   *
+   * @param tempoHundredths new tempo in hundredths of a bpm
+   */
+  private void changeTempo(int tempoHundredths) {
     int tempoOld = config.getTempo();
-    int tempoNew = tempoOld + change;
-    setTempo(tempoNew);
+    int tempoNew = tempoHundredths / 100;
+    setTempo(tempoNew, tempoHundredths % 100);
     // setTempo will only be called by callback below, else we would break timer animation
     synchronized (listeners) {
       for (MetronomeListener listener : listeners) {
@@ -708,7 +940,7 @@ public class MetronomeEngine {
   }
 
   public long getInterval() {
-    return 1000 * 60 / config.getTempo();
+    return Math.round(1000 * 60 / config.getTempoExact());
   }
 
   public void setSound(String sound) {
@@ -720,6 +952,28 @@ public class MetronomeEngine {
     return sharedPrefs.getString(PREF.SOUND, DEF.SOUND);
   }
 
+  /**
+   * Reloads the samples of the given sound in the background, e.g. after custom samples were
+   * imported. If the sound is in use, the new samples are swapped in while playing.
+   */
+  public void reloadSound(String sound) {
+    executorService.execute(() -> audioEngine.reloadSound(sound));
+  }
+
+  public int getSampleRate() {
+    return audioEngine.getSampleRate();
+  }
+
+  /**
+   * Renders the click track of the song with the current sound and gain to a WAV file in the
+   * background, the stream is closed afterwards
+   */
+  public void renderSong(
+      @NonNull SongWithParts song, @NonNull OutputStream output, @NonNull RenderListener listener
+  ) {
+    audioEngine.createOfflineRenderer().renderAsync(song, output, listener);
+  }
+
   public void setBeatMode(@NonNull String mode) {
     if (!hapticUtil.hasVibrator()) {
       mode = BEAT_MODE.SOUND;
@@ -742,13 +996,118 @@ public class MetronomeEngine {
     }
   }
 
+  /**
+   * Sets the manual latency or, with automatic latency, the residual trim added to the measured
+   * output latency. Both are stored separately, so switching the mode restores the other value.
+   */
   public void setLatency(long offset) {
-    latency = offset;
-    sharedPrefs.edit().putLong(PREF.LATENCY, offset).apply();
+    if (latencyAuto) {
+      latencyTrim = offset;
+      sharedPrefs.edit().putLong(PREF.LATENCY_TRIM, offset).apply();
+    } else {
+      latency = offset;
+      sharedPrefs.edit().putLong(PREF.LATENCY, offset).apply();
+    }
   }
 
+  /**
+   * Returns the manual latency or, with automatic latency, the residual trim, which may be
+   * negative
+   */
   public long getLatency() {
-    return latency;
+    return latencyAuto ? latencyTrim : latency;
+  }
+
+  public void setLatencyAuto(boolean auto) {
+    latencyAuto = auto;
+    sharedPrefs.edit().putBoolean(PREF.LATENCY_AUTO, auto).apply();
+  }
+
+  public boolean getLatencyAuto() {
+    return latencyAuto;
+  }
+
+  /**
+   * Returns the output latency measured from audio timestamps in milliseconds or -1 if not
+   * measured yet
+   */
+  public long getOutputLatency() {
+    return audioEngine.getOutputLatency();
+  }
+
+  private long getEffectiveLatency() {
+    if (latencyAuto) {
+      long outputLatency = audioEngine.getOutputLatency();
+      if (outputLatency >= 0) {
+        return Math.max(0, outputLatency + latencyTrim);
+      }
+    }
+    // manual latency until the output latency is measured
+    return Math.max(0, latency);
+  }
+
+  public void setFrameClock(boolean enabled) {
+    // applied on next start to not switch the tick source while playing
+    frameClock = enabled;
+    sharedPrefs.edit().putBoolean(PREF.FRAME_CLOCK, enabled).apply();
+  }
+
+  public boolean getFrameClock() {
+    return frameClock;
+  }
+
+  public void setWarmTrack(boolean warm) {
+    audioEngine.setWarmTrack(warm);
+    sharedPrefs.edit().putBoolean(PREF.WARM_TRACK, warm).apply();
+  }
+
+  public boolean getWarmTrack() {
+    return audioEngine.getWarmTrack();
+  }
+
+  public void setLowLatency(boolean lowLatency) {
+    audioEngine.setLowLatency(lowLatency);
+    sharedPrefs.edit().putBoolean(PREF.LOW_LATENCY, lowLatency).apply();
+  }
+
+  public boolean getLowLatency() {
+    return audioEngine.getLowLatency();
+  }
+
+  public void setMaxPolyphony(int maxPolyphony) {
+    audioEngine.setMaxPolyphony(maxPolyphony);
+    sharedPrefs.edit().putInt(PREF.POLYPHONY, maxPolyphony).apply();
+  }
+
+  public int getMaxPolyphony() {
+    return audioEngine.getMaxPolyphony();
+  }
+
+  /**
+   * Returns the measured time from the last start to the first audible frame in milliseconds or
+   * -1 if not available yet.
+   */
+  public long getStartLatency() {
+    return audioEngine.getStartLatency();
+  }
+
+  /**
+   * Returns underrun count and histograms of write duration and scheduling lateness of the
+   * audio thread, collected since app start or the last reset.
+   */
+  public AudioMetrics getAudioMetrics() {
+    return audioEngine.getMetrics();
+  }
+
+  public void resetAudioMetrics() {
+    audioEngine.getMetrics().reset();
+  }
+
+  /**
+   * Returns the current audio buffer size in frames or -1 if not available
+   */
+  public int getAudioBufferSize() {
+    return audioEngine.getBufferSize();
   }
 
   public void setIgnoreFocus(boolean ignore) {
@@ -769,6 +1128,27 @@ public class MetronomeEngine {
     return audioEngine.getGain();
   }
 
+  public void setAccentGain(String tickType, int gain) {
+    audioEngine.setAccentGain(tickType, gain);
+    String pref;
+    switch (tickType) {
+      case TICK_TYPE.STRONG:
+        pref = PREF.GAIN_STRONG;
+        break;
+      case TICK_TYPE.SUB:
+        pref = PREF.GAIN_SUB;
+        break;
+      default:
+        pref = PREF.GAIN_NORMAL;
+        break;
+    }
+    sharedPrefs.edit().putInt(pref, gain).apply();
+  }
+
+  public int getAccentGain(String tickType) {
+    return audioEngine.getAccentGain(tickType);
+  }
+
   public boolean neverStartedWithGainBefore() {
     return neverStartedWithGain;
   }
@@ -841,18 +1221,19 @@ public class MetronomeEngine {
   public void setIncrementalAmount(int bpm) {
     config.setIncrementalAmount(bpm);
     sharedPrefs.edit().putInt(PREF.INCREMENTAL_AMOUNT, bpm).apply();
-    updateIncrementalHandler();
+    resetTempoRamp();
   }
 
   public void setIncrementalIncrease(boolean increase) {
     config.setIncrementalIncrease(increase);
     sharedPrefs.edit().putBoolean(PREF.INCREMENTAL_INCREASE, increase).apply();
+    resetTempoRamp();
   }
 
   public void setIncrementalInterval(int interval) {
     config.setIncrementalInterval(interval);
     sharedPrefs.edit().putInt(PREF.INCREMENTAL_INTERVAL, interval).apply();
-    updateIncrementalHandler();
+    resetTempoRamp();
   }
 
   public void setIncrementalUnit(String unit) {
@@ -861,40 +1242,22 @@ public class MetronomeEngine {
     }
     config.setIncrementalUnit(unit);
     sharedPrefs.edit().putString(PREF.INCREMENTAL_UNIT, unit).apply();
-    updateIncrementalHandler();
+    resetTempoRamp();
   }
 
   public void setIncrementalLimit(int limit) {
     config.setIncrementalLimit(limit);
     sharedPrefs.edit().putInt(PREF.INCREMENTAL_LIMIT, limit).apply();
+    resetTempoRamp();
   }
 
-  private void updateIncrementalHandler() {
-    if (!isPlaying()) {
+  public void setIncrementalCurve(String curve) {
+    if (curve.equals(config.getIncrementalCurve())) {
       return;
     }
-    incrementalHandler.removeCallbacksAndMessages(null);
-    String unit = config.getIncrementalUnit();
-    int amount = config.getIncrementalAmount();
-    int limit = config.getIncrementalLimit();
-    boolean increase = config.isIncrementalIncrease();
-    if (!unit.equals(UNIT.BARS) && config.isIncrementalActive()) {
-      long factor = unit.equals(UNIT.SECONDS) ? 1000L : 60000L;
-      long interval = factor * config.getIncrementalInterval();
-      incrementalHandler.postDelayed(new Runnable() {
-        @Override
-        public void run() {
-          incrementalHandler.postDelayed(this, interval);
-          int upperLimit = limit != 0 ? limit : Constants.TEMPO_MAX;
-          int lowerLimit = limit != 0 ? limit : Constants.TEMPO_MIN;
-          if (increase && config.getTempo() + amount <= upperLimit) {
-            changeTempo(amount);
-          } else if (!increase && config.getTempo() - amount >= lowerLimit) {
-            changeTempo(-amount);
-          }
-        }
-      }, interval);
-    }
+    config.setIncrementalCurve(curve);
+    sharedPrefs.edit().putString(PREF.INCREMENTAL_CURVE, curve).apply();
+    resetTempoRamp();
   }
 
   public void setShowElapsed(boolean show) {
@@ -1067,16 +1430,11 @@ public class MetronomeEngine {
 
     if (!config.getTimerUnit().equals(UNIT.BARS)) {
       timerHandler.postDelayed(() -> {
-        if (hasNextPart()) {
-          setCurrentPartIndex(currentPartIndex + 1, true);
-        } else if (currentSongWithParts != null && currentSongWithParts.getSong().isLooped()) {
-          // Restart song
-          setCurrentPartIndex(0, true);
+        if (nextPartConfig != null && getNextPartIndex() >= 0) {
+          // the scheduler switches at the end of the current bar
+          partEndPending = true;
         } else {
-          stop();
-          if (currentSongWithParts != null) {
-            setCurrentPartIndex(0, false);
-          }
+          finishPart();
         }
       }, getTimerIntervalRemaining());
       timerHandler.post(new Runnable() {
@@ -1245,10 +1603,23 @@ public class MetronomeEngine {
     }
   }
 
-  private @Nullable Tick performTick() {
+  /**
+   * @param tickTime uptime in milliseconds at which the tick is played, without output latency
+   */
+  private @Nullable Tick performTick(long tickTime) {
+    if (partFinishing) {
+      return null;
+    }
+    int ticksPerBar = config.getBeatsCount() * config.getSubdivisionsCount();
+    if (partEndPending && tickIndex % ticksPerBar == 0 && !switchToNextPart(tickTime)) {
+      // next part has been dropped in the meantime
+      partEndPending = false;
+      postFinishPart();
+      return null;
+    }
     int beat = getCurrentBeat();
     int subdivision = getCurrentSubdivision();
-    String tickType = getCurrentTickType();
+    byte tickType = getCurrentTickType();
 
     long beatIndex = tickIndex / config.getSubdivisionsCount();
     long barIndex = beatIndex / config.getBeatsCount();
@@ -1271,16 +1642,11 @@ public class MetronomeEngine {
       }
       if (timerProgress >= 1) {
         timerProgress = 1;
-        if (hasNextPart()) {
-          setCurrentPartIndex(currentPartIndex + 1, true);
-        } else if (currentSongWithParts != null && currentSongWithParts.getSong().isLooped()) {
-          // Restart song
-          setCurrentPartIndex(0, true);
+        if (switchToNextPart(tickTime)) {
+          // first tick of the next part at the frame at which this bar ended
+          return performTick(tickTime);
         } else {
-          stop();
-          if (currentSongWithParts != null) {
-            setCurrentPartIndex(0, false);
-          }
+          postFinishPart();
         }
         return null;
       }
@@ -1309,26 +1675,23 @@ public class MetronomeEngine {
       timerStringBars = null;
     }
 
-    if (isBeat && isFirstBeat) {
-      if (config.isIncrementalActive()
-          && config.getIncrementalUnit().equals(UNIT.BARS)
-          && !isCountIn
-      ) {
-        int incrementalAmount = config.getIncrementalAmount();
-        int incrementalInterval = config.getIncrementalInterval();
-        int incrementalLimit = config.getIncrementalLimit();
-        boolean incrementalIncrease = config.isIncrementalIncrease();
-        if (barIndexWithoutCountIn >= incrementalInterval
-            && barIndexWithoutCountIn % incrementalInterval == 0) {
-          int upperLimit = incrementalLimit != 0 ? incrementalLimit : Constants.TEMPO_MAX;
-          int lowerLimit = incrementalLimit != 0 ? incrementalLimit : Constants.TEMPO_MIN;
-          if (incrementalIncrease && config.getTempo() + incrementalAmount <= upperLimit) {
-            changeTempo(incrementalAmount);
-          } else if (!incrementalIncrease && config.getTempo() - incrementalAmount >= lowerLimit) {
-            changeTempo(-incrementalAmount);
-          }
-        }
+    if (config.isIncrementalActive() && !isCountIn) {
+      consumeTempoRampReset();
+      if (!tempoRamp.isStarted()) {
+        tempoRamp.start(config.getTempoHundredths());
+      }
+      tickTempoHundredths = tempoRamp.getTempoHundredths(config);
+      // ramps update the displayed tempo once per bar, the ticks follow the exact curve
+      boolean isStep = config.getIncrementalCurve().equals(CURVE.STEP);
+      if (tickTempoHundredths != config.getTempoHundredths()
+          && (isStep || (isBeat && isFirstBeat))) {
+        changeTempo(tickTempoHundredths);
       }
+    } else {
+      tickTempoHundredths = config.getTempoHundredths();
+    }
+
+    if (isBeat && isFirstBeat) {
       if (config.isMuteActive() && config.getMuteUnit().equals(UNIT.BARS) && !isCountIn) {
         if (muteCountDown > 0) {
           muteCountDown--;
@@ -1340,25 +1703,30 @@ public class MetronomeEngine {
       }
     }
 
-    Tick tick = new Tick(tickIndex, beat, subdivision, tickType, isMuted);
+    Tick tick = new Tick(
+        tickIndex, beat, subdivision, tickType, isMuted,
+        config.getBeatsCount() * config.getSubdivisionsCount()
+    );
 
-    latencyHandler.postDelayed(() -> {
+    long tickLatency = getEffectiveLatency();
+
+    latencyHandler.postAtTime(() -> {
       synchronized (listeners) {
         for (MetronomeListener listener : listeners) {
           listener.onMetronomePreTick(tick);
         }
       }
-    }, Math.max(0, latency - Constants.BEAT_ANIM_OFFSET));
-    latencyHandler.postDelayed(() -> {
+    }, tickTime + Math.max(0, tickLatency - Constants.BEAT_ANIM_OFFSET));
+    latencyHandler.postAtTime(() -> {
       if (!beatMode.equals(BEAT_MODE.SOUND) && !isMuted) {
         switch (tick.type) {
-          case TICK_TYPE.STRONG:
+          case TickPattern.STRONG:
             hapticUtil.heavyClick(hapticUtil.supportsMainEffects());
             break;
-          case TICK_TYPE.SUB:
+          case TickPattern.SUB:
             hapticUtil.tick(hapticUtil.supportsMainEffects());
             break;
-          case TICK_TYPE.MUTED:
+          case TickPattern.MUTED:
             break;
           default:
             hapticUtil.click(hapticUtil.supportsMainEffects());
@@ -1369,26 +1737,54 @@ public class MetronomeEngine {
           listener.onMetronomeTick(tick);
         }
       }
-    }, latency);
+    }, tickTime + tickLatency);
 
     return tick;
   }
 
+  /**
+   * Returns the size of the period after the last performed tick and advances the tempo ramp
+   */
+  private int nextPeriodSize() {
+    int periodSize = periodGenerator.next(tickTempoHundredths, config.getSubdivisionsCount());
+    consumeTempoRampReset();
+    if (tempoRamp.isStarted()) {
+      tempoRamp.advance(periodSize);
+    }
+    return periodSize;
+  }
+
+  /**
+   * The ramp is started again from the current tempo with the next tick, may be called from any
+   * thread
+   */
+  private void resetTempoRamp() {
+    tempoRampResetPending = true;
+  }
+
+  private void consumeTempoRampReset() {
+    if (tempoRampResetPending) {
+      // a request arriving right now is covered by the following reset
+      tempoRampResetPending = false;
+      tempoRamp.reset();
+    }
+  }
+
   private int getCurrentBeat() {
-    return (int) ((tickIndex / config.getSubdivisionsCount()) % config.getBeats().length) + 1;
+    return (int) ((tickIndex / config.getSubdivisionsCount()) % config.getBeatsCount()) + 1;
   }
 
   private int getCurrentSubdivision() {
     return (int) (tickIndex % config.getSubdivisionsCount()) + 1;
   }
 
-  private String getCurrentTickType() {
+  private byte getCurrentTickType() {
     int subdivisionsCount = config.getSubdivisionsCount();
     if ((tickIndex % subdivisionsCount) == 0) {
-      String[] beats = config.getBeats();
+      byte[] beats = config.getBeatPattern();
       return beats[(int) ((tickIndex / subdivisionsCount) % beats.length)];
     } else {
-      String[] subdivisions = config.getSubdivisions();
+      byte[] subdivisions = config.getSubdivisionPattern();
       return subdivisions[(int) (tickIndex % subdivisionsCount)];
     }
   }
@@ -1426,16 +1822,22 @@ public class MetronomeEngine {
   public static class Tick {
     public final long index;
     public final int beat, subdivision;
-    @NonNull
-    public final String type;
+    // one of the tick types of TickPattern
+    public final byte type;
     public final boolean isMuted;
+    // bars start at indices which are multiples of this, used to place polyrhythm pulses
+    public final int ticksPerBar;
 
-    public Tick(long index, int beat, int subdivision, @NonNull String type, boolean isMuted) {
+    public Tick(
+        long index, int beat, int subdivision, byte type, boolean isMuted,
+        int ticksPerBar
+    ) {
       this.index = index;
       this.beat = beat;
       this.subdivision = subdivision;
       this.type = type;
       this.isMuted = isMuted;
+      this.ticksPerBar = ticksPerBar;
     }
 
     @NonNull
@@ -1444,7 +1846,7 @@ public class MetronomeEngine {
       return "Tick{index = " + index +
           ", beat=" + beat +
           ", sub=" + subdivision +
-          ", type=" + type +
+          ", type=" + TickPattern.getTickType(type) +
           ", muted=" + isMuted + '}';
     }
   }
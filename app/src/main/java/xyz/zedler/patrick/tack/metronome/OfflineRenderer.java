@@ -0,0 +1,381 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.metronome;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import xyz.zedler.patrick.tack.Constants;
+import xyz.zedler.patrick.tack.Constants.UNIT;
+import xyz.zedler.patrick.tack.core.AudioSink;
+import xyz.zedler.patrick.tack.core.PeriodGenerator;
+import xyz.zedler.patrick.tack.core.PeriodRenderer;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers;
+import xyz.zedler.patrick.tack.core.SoundCache.SoundSet;
+import xyz.zedler.patrick.tack.core.TempoRamp;
+import xyz.zedler.patrick.tack.core.VoiceMixer;
+import xyz.zedler.patrick.tack.core.WavUtil;
+import xyz.zedler.patrick.tack.database.entity.Part;
+import xyz.zedler.patrick.tack.database.relations.SongWithParts;
+import xyz.zedler.patrick.tack.model.MetronomeConfig;
+import xyz.zedler.patrick.tack.model.TickPattern;
+import xyz.zedler.patrick.tack.util.SortUtil;
+
+/**
+ * Renders the click track of a song to a mono float WAV file as fast as possible. Parts are
+ * played one after another like in the live engine, including the count-in of the first part,
+ * incremental tempo changes, polyrhythm layers, timers and muted bars, but the timing is derived
+ * from frame positions only. The output is written through a small fixed buffer, so the memory
+ * usage does not depend on the song length. Random muting uses a fixed seed, rendering the same
+ * song twice gives identical files.
+ */
+public class OfflineRenderer {
+
+  private static final String TAG = OfflineRenderer.class.getSimpleName();
+
+  private static final int BUFFER_SIZE = 1024;
+  // parts without timer would play forever
+  private static final long PART_DURATION_MAX = 10 * 60 * 1000;
+  private static final long RANDOM_SEED = 0;
+  private static final float PROGRESS_STEP = 0.01f;
+
+  // shared so renders are processed one after another
+  private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  private final SoundSet soundSet;
+  private final PolyrhythmLayers.SoundLoader layerSoundLoader;
+  private final float levelStrong, levelNormal, levelSub;
+  private final int sampleRate;
+  private final PeriodGenerator periodGenerator;
+  private final TempoRamp tempoRamp;
+  private final VoiceMixer voiceMixer;
+  private final PolyrhythmLayers polyrhythmLayers = new PolyrhythmLayers();
+  private final PeriodRenderer periodRenderer;
+  private Random random;
+  private long framesRendered, frameCount;
+  private float progress;
+
+  /**
+   * @param soundSet         tick sounds at the given sample rate
+   * @param layerSoundLoader loads the sounds of polyrhythm layers at the given sample rate
+   * @param levels           linear levels of strong, normal and sub ticks
+   */
+  public OfflineRenderer(
+      @NonNull SoundSet soundSet, @NonNull PolyrhythmLayers.SoundLoader layerSoundLoader,
+      float[] levels, int sampleRate, int maxPolyphony, int fadeFrames
+  ) {
+    this.soundSet = soundSet;
+    this.layerSoundLoader = layerSoundLoader;
+    this.levelStrong = levels[0];
+    this.levelNormal = levels[1];
+    this.levelSub = levels[2];
+    this.sampleRate = sampleRate;
+    periodGenerator = new PeriodGenerator(sampleRate);
+    tempoRamp = new TempoRamp(sampleRate, Constants.TEMPO_MIN, Constants.TEMPO_MAX);
+    voiceMixer = new VoiceMixer(maxPolyphony, fadeFrames);
+    periodRenderer = new PeriodRenderer(voiceMixer, polyrhythmLayers, BUFFER_SIZE);
+  }
+
+  /**
+   * Renders the song on a background thread and closes the stream afterwards. The listener is
+   * called on the main thread.
+   */
+  public void renderAsync(
+      @NonNull SongWithParts song, @NonNull OutputStream output, @NonNull RenderListener listener
+  ) {
+    Handler mainHandler = new Handler(Looper.getMainLooper());
+    executorService.execute(() -> {
+      try (OutputStream stream = new BufferedOutputStream(output)) {
+        render(song, stream, fraction -> mainHandler.post(() -> listener.onProgress(fraction)));
+        mainHandler.post(listener::onRendered);
+      } catch (Exception e) {
+        Log.e(TAG, "renderAsync: failed to render song " + song.getSong().getId(), e);
+        mainHandler.post(listener::onError);
+      }
+    });
+  }
+
+  /**
+   * Renders the song synchronously, the WAV header is written first, so the stream does not
+   * need to be seekable
+   */
+  public void render(
+      @NonNull SongWithParts song, @NonNull OutputStream output,
+      @Nullable ProgressListener listener
+  ) throws IOException {
+    // timing does not depend on sounds or muting, a dry run returns the exact length
+    frameCount = process(song, null, null);
+    WavUtil.writeWavHeader(output, frameCount, sampleRate);
+    process(song, output, listener);
+  }
+
+  /**
+   * Returns the length of the rendered song in frames
+   */
+  public long getFrameCount(@NonNull SongWithParts song) {
+    try {
+      return process(song, null, null);
+    } catch (IOException e) {
+      // nothing is written in a dry run
+      return 0;
+    }
+  }
+
+  private long process(
+      SongWithParts song, @Nullable OutputStream output, @Nullable ProgressListener listener
+  ) throws IOException {
+    random = new Random(RANDOM_SEED);
+    framesRendered = 0;
+    progress = 0;
+    voiceMixer.reset();
+    AudioSink sink = output != null ? new StreamSink(output) : null;
+    List<Part> parts = new ArrayList<>(song.getParts());
+    SortUtil.sortPartsByIndex(parts);
+    try {
+      for (int i = 0; i < parts.size(); i++) {
+        processPart(parts.get(i).toConfig(), i == 0, i < parts.size() - 1, sink, listener);
+      }
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    return framesRendered;
+  }
+
+  /**
+   * Follows the scheduling of the live engine, but timed events (timer and muting in seconds or
+   * minutes) start at the frame at which the count-in ends. Like the live engine, a timed part
+   * followed by another part plays its last bar to the end. Following parts start without their
+   * count-in, like the gapless part switch of the live engine.
+   */
+  private void processPart(
+      MetronomeConfig config,
+      boolean isFirstPart,
+      boolean hasNextPart,
+      @Nullable AudioSink sink,
+      @Nullable ProgressListener listener
+  ) {
+    int beatsCount = config.getBeatsCount();
+    int subdivisionsCount = config.getSubdivisionsCount();
+    int ticksPerBar = beatsCount * subdivisionsCount;
+    long countInTickCount = (long) config.getCountIn() * beatsCount * subdivisionsCount;
+    boolean isTimerBars = config.isTimerActive() && config.getTimerUnit().equals(UNIT.BARS);
+    long tickCount = isTimerBars
+        ? countInTickCount + (long) config.getTimerDuration() * beatsCount * subdivisionsCount
+        : Long.MAX_VALUE;
+    boolean isMuteTimed = config.isMuteActive() && !config.getMuteUnit().equals(UNIT.BARS);
+
+    periodGenerator.reset();
+    tempoRamp.reset();
+    if (sink != null) {
+      polyrhythmLayers.setLayers(
+          PolyrhythmLayers.createLayers(config.getLayers(), layerSoundLoader)
+      );
+    }
+    boolean isMuted = false;
+    int muteCountDown = config.isMuteActive() ? calculateMuteCount(config, false) : 0;
+    long partFrame = 0;
+    long endFrame = isTimerBars ? Long.MAX_VALUE : msToFrames(PART_DURATION_MAX);
+    long nextMuteFrame = Long.MAX_VALUE;
+
+    // tick indices keep their count-in offset, so bars and beats are counted like when playing
+    long firstTickIndex = isFirstPart ? 0 : countInTickCount;
+    for (long tickIndex = firstTickIndex; tickIndex < tickCount; tickIndex++) {
+      boolean isCountIn = tickIndex < countInTickCount;
+      if (tickIndex == countInTickCount) {
+        if (config.isTimerActive() && !isTimerBars) {
+          endFrame = partFrame + msToFrames(getUnitFactor(config.getTimerUnit())
+              * config.getTimerDuration());
+        }
+        if (config.isIncrementalActive()) {
+          tempoRamp.start(config.getTempoHundredths());
+        }
+        if (isMuteTimed) {
+          isMuted = false;
+          nextMuteFrame = partFrame + getMuteIntervalFrames(config, false);
+        }
+      }
+      if (endFrame <= partFrame && (!hasNextPart || tickIndex % ticksPerBar == 0)) {
+        break;
+      }
+      while (partFrame >= nextMuteFrame) {
+        isMuted = !isMuted;
+        nextMuteFrame += getMuteIntervalFrames(config, isMuted);
+      }
+
+      long beatIndex = tickIndex / subdivisionsCount;
+      boolean isBeat = tickIndex % subdivisionsCount == 0;
+      boolean isFirstBeat = beatIndex % beatsCount == 0;
+      if (isBeat && isFirstBeat && !isCountIn) {
+        if (config.isMuteActive() && !isMuteTimed) {
+          if (muteCountDown > 0) {
+            muteCountDown--;
+          } else {
+            isMuted = !isMuted;
+            // minus 1 because it's already the next bar
+            muteCountDown = Math.max(calculateMuteCount(config, isMuted) - 1, 0);
+          }
+        }
+      }
+
+      byte tickType = isBeat
+          ? config.getBeatPattern()[(int) (beatIndex % beatsCount)]
+          : config.getSubdivisionPattern()[(int) (tickIndex % subdivisionsCount)];
+      int tempoHundredths = tempoRamp.isStarted()
+          ? tempoRamp.getTempoHundredths(config)
+          : config.getTempoHundredths();
+      int periodSize = periodGenerator.next(tempoHundredths, subdivisionsCount);
+      if (!hasNextPart) {
+        // timers in seconds or minutes cut the last period of the song
+        periodSize = (int) Math.min(periodSize, endFrame - partFrame);
+      }
+      if (sink != null) {
+        int pulseCount = isMuted || polyrhythmLayers.isEmpty()
+            ? 0
+            : polyrhythmLayers.collect(tickIndex, ticksPerBar, periodSize);
+        byte type = isMuted ? TickPattern.MUTED : tickType;
+        periodRenderer.render(
+            sink, getTickSound(type), getTickLevel(type), periodSize, pulseCount, levelNormal
+        );
+      }
+      framesRendered += periodSize;
+      updateProgress(listener);
+      partFrame += periodSize;
+      if (tempoRamp.isStarted()) {
+        tempoRamp.advance(periodSize);
+      }
+    }
+  }
+
+  @Nullable
+  private float[] getTickSound(byte tickType) {
+    switch (tickType) {
+      case TickPattern.STRONG:
+        return soundSet.strong;
+      case TickPattern.NORMAL:
+        return soundSet.normal;
+      case TickPattern.SUB:
+        return soundSet.sub;
+      default:
+        return null;
+    }
+  }
+
+  private float getTickLevel(byte tickType) {
+    switch (tickType) {
+      case TickPattern.STRONG:
+        return levelStrong;
+      case TickPattern.SUB:
+        return levelSub;
+      default:
+        return levelNormal;
+    }
+  }
+
+  private void updateProgress(@Nullable ProgressListener listener) {
+    if (listener == null || frameCount == 0) {
+      return;
+    }
+    float fraction = (float) framesRendered / frameCount;
+    if (fraction - progress >= PROGRESS_STEP) {
+      progress = fraction;
+      listener.onProgress(fraction);
+    }
+  }
+
+  private int calculateMuteCount(MetronomeConfig config, boolean mute) {
+    int count = mute ? config.getMuteMute() : config.getMutePlay();
+    if (config.isMuteRandom()) {
+      return random.nextInt(count + 1);
+    } else {
+      return count;
+    }
+  }
+
+  private long getMuteIntervalFrames(MetronomeConfig config, boolean mute) {
+    // random counts can be zero, the state is toggled again one frame later then
+    return Math.max(1, calculateMuteCount(config, mute) * (long) sampleRate);
+  }
+
+  private static long getUnitFactor(String unit) {
+    return unit.equals(UNIT.MINUTES) ? 60000L : 1000L;
+  }
+
+  private long msToFrames(long ms) {
+    return ms * sampleRate / 1000;
+  }
+
+  /**
+   * Writes the samples as little-endian floats, failures are rethrown unchecked through the
+   * renderer and unwrapped again in process()
+   */
+  private static class StreamSink implements AudioSink {
+
+    private final OutputStream output;
+    private final ByteBuffer byteBuffer;
+
+    StreamSink(OutputStream output) {
+      this.output = output;
+      byteBuffer = ByteBuffer.allocate(BUFFER_SIZE * Float.BYTES);
+      byteBuffer.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    @Override
+    public boolean write(@NonNull float[] data, int size) {
+      byteBuffer.clear();
+      for (int i = 0; i < size; i++) {
+        byteBuffer.putFloat(data[i]);
+      }
+      try {
+        output.write(byteBuffer.array(), 0, byteBuffer.position());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return true;
+    }
+
+    @Override
+    public int getPlaybackHeadPosition() {
+      throw new IllegalStateException("stream has no playback position");
+    }
+  }
+
+  public interface ProgressListener {
+    void onProgress(float fraction);
+  }
+
+  public interface RenderListener {
+    void onProgress(float fraction);
+    void onRendered();
+    void onError();
+  }
+}
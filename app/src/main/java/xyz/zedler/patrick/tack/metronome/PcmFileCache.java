@@ -0,0 +1,155 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.metronome;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import xyz.zedler.patrick.tack.BuildConfig;
+
+/**
+ * On-disk cache of decoded, resampled and pitched samples in the native float format of the
+ * engine. Entries are loaded with a memory mapped buffer and are invalidated when the app version,
+ * the sample rate or the pitch differ from the header.
+ */
+public class PcmFileCache {
+
+  private static final String TAG = PcmFileCache.class.getSimpleName();
+
+  private static final String DIRECTORY = "pcm";
+  private static final String EXTENSION = ".pcm";
+  private static final int MAGIC = 0x54504346; // TPCF
+  // increase when the decoding or resampling changes
+  private static final int FORMAT_VERSION = 1;
+  private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+  private final File directory;
+
+  public PcmFileCache(@NonNull Context context) {
+    directory = new File(context.getCacheDir(), DIRECTORY);
+  }
+
+  /**
+   * Returns the cached samples or null if there is no valid entry
+   */
+  @Nullable
+  public float[] get(@NonNull String name, int sampleRate, int pitch) {
+    File file = getFile(name, sampleRate, pitch);
+    if (!file.exists()) {
+      return null;
+    }
+    try (RandomAccessFile input = new RandomAccessFile(file, "r");
+        FileChannel channel = input.getChannel()) {
+      long size = channel.size();
+      if (size < HEADER_SIZE) {
+        throw new IOException("Too short cache file");
+      }
+      MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+      buffer.order(ByteOrder.LITTLE_ENDIAN);
+      int length = readHeader(buffer, sampleRate, pitch);
+      if (length < 0 || (long) length * Float.BYTES != size - HEADER_SIZE) {
+        throw new IOException("Outdated or corrupt cache file");
+      }
+      FloatBuffer floatBuffer = buffer.asFloatBuffer();
+      float[] data = new float[length];
+      floatBuffer.get(data);
+      return data;
+    } catch (IOException e) {
+      Log.w(TAG, "get: invalid entry " + file.getName() + ": " + e.getMessage());
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+      return null;
+    }
+  }
+
+  public void put(@NonNull String name, int sampleRate, int pitch, @NonNull float[] data) {
+    if (!directory.exists() && !directory.mkdirs()) {
+      Log.e(TAG, "put: could not create cache directory");
+      return;
+    }
+    File file = getFile(name, sampleRate, pitch);
+    // written to a temporary file first so a crash never leaves a partial entry
+    File temp = new File(directory, file.getName() + ".tmp");
+    ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + data.length * Float.BYTES);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    buffer.putInt(MAGIC);
+    buffer.putInt(FORMAT_VERSION);
+    buffer.putInt(BuildConfig.VERSION_CODE);
+    buffer.putInt(sampleRate);
+    buffer.putInt(pitch);
+    buffer.putInt(data.length);
+    buffer.asFloatBuffer().put(data);
+    buffer.rewind();
+    try (FileOutputStream output = new FileOutputStream(temp);
+        FileChannel channel = output.getChannel()) {
+      while (buffer.hasRemaining()) {
+        channel.write(buffer);
+      }
+    } catch (IOException e) {
+      Log.e(TAG, "put: could not write " + temp.getName(), e);
+      //noinspection ResultOfMethodCallIgnored
+      temp.delete();
+      return;
+    }
+    if (!temp.renameTo(file)) {
+      Log.e(TAG, "put: could not rename " + temp.getName());
+      //noinspection ResultOfMethodCallIgnored
+      temp.delete();
+    }
+  }
+
+  public void clear() {
+    File[] files = directory.listFiles();
+    if (files == null) {
+      return;
+    }
+    for (File file : files) {
+      //noinspection ResultOfMethodCallIgnored
+      file.delete();
+    }
+  }
+
+  /**
+   * Returns the length of the samples or -1 if the header does not match
+   */
+  private static int readHeader(ByteBuffer buffer, int sampleRate, int pitch) {
+    boolean valid = buffer.getInt() == MAGIC
+        && buffer.getInt() == FORMAT_VERSION
+        && buffer.getInt() == BuildConfig.VERSION_CODE
+        && buffer.getInt() == sampleRate
+        && buffer.getInt() == pitch;
+    return valid ? buffer.getInt() : -1;
+  }
+
+  private File getFile(String name, int sampleRate, int pitch) {
+    // the header is checked as well, the name only keeps variants apart
+    return new File(directory, name + "_" + sampleRate + "_" + pitch + EXTENSION);
+  }
+}
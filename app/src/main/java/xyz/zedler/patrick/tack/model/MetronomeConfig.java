@@ -22,21 +22,43 @@ package xyz.zedler.patrick.tack.model;
 import android.content.SharedPreferences;
 import java.util.Arrays;
 import xyz.zedler.patrick.tack.Constants;
+import xyz.zedler.patrick.tack.Constants.CURVE;
 import xyz.zedler.patrick.tack.Constants.DEF;
 import xyz.zedler.patrick.tack.Constants.PREF;
-import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
-
-public class MetronomeConfig {
+import xyz.zedler.patrick.tack.Constants.SOUND;
+import xyz.zedler.patrick.tack.Constants.UNIT;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers;
+import xyz.zedler.patrick.tack.core.TempoRamp;
+
+public class MetronomeConfig implements TempoRamp.Settings {
+
+  private static final byte MUTED = TickPattern.MUTED;
+  private static final byte[] SWING_3 = new byte[]{MUTED, MUTED, TickPattern.NORMAL};
+  private static final byte[] SWING_3_SUB = new byte[]{MUTED, MUTED, TickPattern.SUB};
+  private static final byte[] SWING_5 = new byte[]{
+      MUTED, MUTED, MUTED, TickPattern.NORMAL, MUTED
+  };
+  private static final byte[] SWING_5_SUB = new byte[]{
+      MUTED, MUTED, MUTED, TickPattern.SUB, MUTED
+  };
+  private static final byte[] SWING_7 = new byte[]{
+      MUTED, MUTED, MUTED, MUTED, TickPattern.NORMAL, MUTED, MUTED
+  };
+  private static final byte[] SWING_7_SUB = new byte[]{
+      MUTED, MUTED, MUTED, MUTED, TickPattern.SUB, MUTED, MUTED
+  };
 
   // count in
   private int countIn;
-  // tempo
-  private int tempo;
-  // beats
-  private String[] beats, subdivisions;
+  // tempo in hundredths of a bpm, a single field so the scheduler never sees half an update
+  private volatile int tempoHundredths;
+  // beats, one byte per tick, see TickPattern
+  private byte[] beats, subdivisions;
+  // polyrhythm layers as pulses:sound
+  private String[] layers;
   // incremental tempo change
   private int incrementalAmount, incrementalInterval, incrementalLimit;
-  private String incrementalUnit;
+  private String incrementalUnit, incrementalCurve;
   private boolean incrementalIncrease;
   // duration
   private int timerDuration;
@@ -49,16 +71,18 @@ public class MetronomeConfig {
   public MetronomeConfig() {
     this.countIn = DEF.COUNT_IN;
 
-    this.tempo = DEF.TEMPO;
+    this.tempoHundredths = DEF.TEMPO * 100 + DEF.TEMPO_DECIMALS;
 
-    this.beats = DEF.BEATS.split(",");
-    this.subdivisions = DEF.SUBDIVISIONS.split(",");
+    this.beats = TickPattern.parse(DEF.BEATS);
+    this.subdivisions = TickPattern.parse(DEF.SUBDIVISIONS);
+    this.layers = parseLayers(DEF.LAYERS);
 
     this.incrementalAmount = DEF.INCREMENTAL_AMOUNT;
     this.incrementalInterval = DEF.INCREMENTAL_INTERVAL;
     this.incrementalLimit = DEF.INCREMENTAL_LIMIT;
     this.incrementalUnit = DEF.INCREMENTAL_UNIT;
     this.incrementalIncrease = DEF.INCREMENTAL_INCREASE;
+    this.incrementalCurve = DEF.INCREMENTAL_CURVE;
 
     this.timerDuration = DEF.TIMER_DURATION;
     this.timerUnit = DEF.TIMER_UNIT;
@@ -75,25 +99,27 @@ public class MetronomeConfig {
 
   public MetronomeConfig(
       int countIn,
-      int tempo,
-      String[] beats, String[] subdivisions,
+      int tempo, int tempoDecimals,
+      String[] beats, String[] subdivisions, String[] layers,
       int incrementalAmount, int incrementalInterval, int incrementalLimit,
-      String incrementalUnit, boolean incrementalIncrease,
+      String incrementalUnit, boolean incrementalIncrease, String incrementalCurve,
       int timerDuration, String timerUnit,
       int mutePlay, int muteMute, String muteUnit, boolean muteRandom
   ) {
     this.countIn = countIn;
 
-    this.tempo = tempo;
+    this.tempoHundredths = tempo * 100 + tempoDecimals;
 
-    this.beats = beats;
-    this.subdivisions = subdivisions;
+    this.beats = TickPattern.parse(beats);
+    this.subdivisions = TickPattern.parse(subdivisions);
+    this.layers = layers;
 
     this.incrementalAmount = incrementalAmount;
     this.incrementalInterval = incrementalInterval;
     this.incrementalLimit = incrementalLimit;
     this.incrementalUnit = incrementalUnit;
     this.incrementalIncrease = incrementalIncrease;
+    this.incrementalCurve = incrementalCurve;
 
     this.timerDuration = timerDuration;
     this.timerUnit = timerUnit;
@@ -110,14 +136,16 @@ public class MetronomeConfig {
 
   public boolean equals(MetronomeConfig other) {
     return this.countIn == other.countIn &&
-        this.tempo == other.tempo &&
+        this.tempoHundredths == other.tempoHundredths &&
         java.util.Arrays.equals(this.beats, other.beats) &&
         java.util.Arrays.equals(this.subdivisions, other.subdivisions) &&
+        java.util.Arrays.equals(this.layers, other.layers) &&
         this.incrementalAmount == other.incrementalAmount &&
         this.incrementalInterval == other.incrementalInterval &&
         this.incrementalLimit == other.incrementalLimit &&
         this.incrementalUnit.equals(other.incrementalUnit) &&
         this.incrementalIncrease == other.incrementalIncrease &&
+        this.incrementalCurve.equals(other.incrementalCurve) &&
         this.timerDuration == other.timerDuration &&
         this.timerUnit.equals(other.timerUnit) &&
         this.mutePlay == other.mutePlay &&
@@ -129,16 +157,18 @@ public class MetronomeConfig {
   public void setToConfig(MetronomeConfig other) {
     this.countIn = other.countIn;
 
-    this.tempo = other.tempo;
+    this.tempoHundredths = other.tempoHundredths;
 
     this.beats = other.beats.clone();
     this.subdivisions = other.subdivisions.clone();
+    this.layers = other.layers.clone();
 
     this.incrementalAmount = other.incrementalAmount;
     this.incrementalInterval = other.incrementalInterval;
     this.incrementalLimit = other.incrementalLimit;
     this.incrementalUnit = other.incrementalUnit;
     this.incrementalIncrease = other.incrementalIncrease;
+    this.incrementalCurve = other.incrementalCurve;
 
     this.timerDuration = other.timerDuration;
     this.timerUnit = other.timerUnit;
@@ -152,10 +182,12 @@ public class MetronomeConfig {
   public void setToPreferences(SharedPreferences sharedPrefs) {
     countIn = sharedPrefs.getInt(PREF.COUNT_IN, DEF.COUNT_IN);
 
-    tempo = sharedPrefs.getInt(PREF.TEMPO, DEF.TEMPO);
+    tempoHundredths = sharedPrefs.getInt(PREF.TEMPO, DEF.TEMPO) * 100
+        + sharedPrefs.getInt(PREF.TEMPO_DECIMALS, DEF.TEMPO_DECIMALS);
 
-    beats = sharedPrefs.getString(PREF.BEATS, DEF.BEATS).split(",");
-    subdivisions = sharedPrefs.getString(PREF.SUBDIVISIONS, DEF.SUBDIVISIONS).split(",");
+    beats = TickPattern.parse(sharedPrefs.getString(PREF.BEATS, DEF.BEATS));
+    subdivisions = TickPattern.parse(sharedPrefs.getString(PREF.SUBDIVISIONS, DEF.SUBDIVISIONS));
+    layers = parseLayers(sharedPrefs.getString(PREF.LAYERS, DEF.LAYERS));
 
     incrementalAmount = sharedPrefs.getInt(PREF.INCREMENTAL_AMOUNT, DEF.INCREMENTAL_AMOUNT);
     incrementalInterval = sharedPrefs.getInt(PREF.INCREMENTAL_INTERVAL, DEF.INCREMENTAL_INTERVAL);
@@ -164,6 +196,7 @@ public class MetronomeConfig {
     incrementalIncrease = sharedPrefs.getBoolean(
         PREF.INCREMENTAL_INCREASE, DEF.INCREMENTAL_INCREASE
     );
+    incrementalCurve = sharedPrefs.getString(PREF.INCREMENTAL_CURVE, DEF.INCREMENTAL_CURVE);
 
     timerDuration = sharedPrefs.getInt(PREF.TIMER_DURATION, DEF.TIMER_DURATION);
     timerUnit = sharedPrefs.getString(PREF.TIMER_UNIT, DEF.TIMER_UNIT);
@@ -174,6 +207,32 @@ public class MetronomeConfig {
     muteRandom = sharedPrefs.getBoolean(PREF.MUTE_RANDOM, DEF.MUTE_RANDOM);
   }
 
+  /**
+   * Writes the whole config with a single editor, the counterpart of setToPreferences
+   */
+  public void saveToPreferences(SharedPreferences sharedPrefs) {
+    sharedPrefs.edit()
+        .putInt(PREF.COUNT_IN, countIn)
+        .putInt(PREF.TEMPO, getTempo())
+        .putInt(PREF.TEMPO_DECIMALS, getTempoDecimals())
+        .putString(PREF.BEATS, TickPattern.join(beats))
+        .putString(PREF.SUBDIVISIONS, TickPattern.join(subdivisions))
+        .putString(PREF.LAYERS, String.join(",", layers))
+        .putInt(PREF.INCREMENTAL_AMOUNT, incrementalAmount)
+        .putInt(PREF.INCREMENTAL_INTERVAL, incrementalInterval)
+        .putInt(PREF.INCREMENTAL_LIMIT, incrementalLimit)
+        .putString(PREF.INCREMENTAL_UNIT, incrementalUnit)
+        .putBoolean(PREF.INCREMENTAL_INCREASE, incrementalIncrease)
+        .putString(PREF.INCREMENTAL_CURVE, incrementalCurve)
+        .putInt(PREF.TIMER_DURATION, timerDuration)
+        .putString(PREF.TIMER_UNIT, timerUnit)
+        .putInt(PREF.MUTE_PLAY, mutePlay)
+        .putInt(PREF.MUTE_MUTE, muteMute)
+        .putString(PREF.MUTE_UNIT, muteUnit)
+        .putBoolean(PREF.MUTE_RANDOM, muteRandom)
+        .apply();
+  }
+
   public int getCountIn() {
     return countIn;
   }
@@ -187,29 +246,71 @@ public class MetronomeConfig {
   }
 
   public int getTempo() {
-    return tempo;
+    return tempoHundredths / 100;
   }
 
   public void setTempo(int tempo) {
-    this.tempo = tempo;
+    // whole bpm values from tempo picker, slider and buttons drop the decimals
+    tempoHundredths = tempo * 100;
+  }
+
+  public int getTempoDecimals() {
+    return tempoHundredths % 100;
+  }
+
+  public void setTempoDecimals(int tempoDecimals) {
+    tempoHundredths = getTempo() * 100 + tempoDecimals;
+  }
+
+  /**
+   * Returns the tempo in hundredths of a bpm, used for drift-free period calculation
+   */
+  public int getTempoHundredths() {
+    return tempoHundredths;
+  }
+
+  /**
+   * Sets whole bpm and decimals with a single write, the scheduler reads the tempo concurrently
+   */
+  public void setTempoHundredths(int tempoHundredths) {
+    this.tempoHundredths = tempoHundredths;
+  }
+
+  public double getTempoExact() {
+    return getTempoHundredths() / 100.0;
   }
 
+  public void setTempoExact(double tempoExact) {
+    tempoHundredths = (int) Math.round(tempoExact * 100);
+  }
+
+  /**
+   * Returns the tick types of the beats for persistence and the views
+   */
   public String[] getBeats() {
+    return TickPattern.toTickTypes(beats);
+  }
+
+  /**
+   * Returns the beats as tick types of TickPattern, must not be modified
+   */
+  public byte[] getBeatPattern() {
     return beats;
   }
 
   public void setBeats(String[] beats) {
-    this.beats = beats;
+    this.beats = TickPattern.parse(beats);
   }
 
   public void setBeats(String beats) {
-    this.beats = beats.split(",");
+    this.beats = TickPattern.parse(beats);
   }
 
   public void setBeat(int beat, String tickType) {
-    beats[beat] = tickType;
+    beats[beat] = TickPattern.getType(tickType);
   }
 
+  @Override
   public int getBeatsCount() {
     return beats.length;
   }
@@ -218,8 +319,8 @@ public class MetronomeConfig {
     if (beats.length >= Constants.BEATS_MAX) {
       return false;
     }
-    String[] beats = Arrays.copyOf(this.beats, this.beats.length + 1);
-    beats[beats.length - 1] = TICK_TYPE.NORMAL;
+    byte[] beats = Arrays.copyOf(this.beats, this.beats.length + 1);
+    beats[beats.length - 1] = TickPattern.NORMAL;
     this.beats = beats;
     return true;
   }
@@ -232,22 +333,33 @@ public class MetronomeConfig {
     return true;
   }
 
+  /**
+   * Returns the tick types of the subdivisions for persistence and the views
+   */
   public String[] getSubdivisions() {
+    return TickPattern.toTickTypes(subdivisions);
+  }
+
+  /**
+   * Returns the subdivisions as tick types of TickPattern, must not be modified
+   */
+  public byte[] getSubdivisionPattern() {
     return subdivisions;
   }
 
   public void setSubdivisions(String[] subdivisions) {
-    this.subdivisions = subdivisions;
+    this.subdivisions = TickPattern.parse(subdivisions);
   }
 
   public void setSubdivisions(String subdivisions) {
-    this.subdivisions = subdivisions.split(",");
+    this.subdivisions = TickPattern.parse(subdivisions);
   }
 
   public void setSubdivision(int subdivision, String tickType) {
-    subdivisions[subdivision] = tickType;
+    subdivisions[subdivision] = TickPattern.getType(tickType);
   }
 
+  @Override
   public int getSubdivisionsCount() {
     return subdivisions.length;
   }
@@ -260,10 +372,10 @@ public class MetronomeConfig {
     if (subdivisions.length >= Constants.SUBS_MAX) {
       return false;
     }
-    String[] subdivisions = Arrays.copyOf(
+    byte[] subdivisions = Arrays.copyOf(
         this.subdivisions, this.subdivisions.length + 1
     );
-    subdivisions[subdivisions.length - 1] = TICK_TYPE.SUB;
+    subdivisions[subdivisions.length - 1] = TickPattern.SUB;
     this.subdivisions = subdivisions;
     return true;
   }
@@ -277,67 +389,90 @@ public class MetronomeConfig {
   }
 
   public void setSwing3() {
-    subdivisions = String.join(
-        ",", TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.NORMAL
-    ).split(",");
+    subdivisions = SWING_3.clone();
   }
 
   public boolean isSwing3() {
-    String triplet = String.join(",", TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.SUB);
-    String tripletAlt = String.join(
-        ",", TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.NORMAL
-    );
-    String subdivisions = String.join(",", this.subdivisions);
-    return subdivisions.equals(triplet) || subdivisions.equals(tripletAlt);
+    return Arrays.equals(subdivisions, SWING_3) || Arrays.equals(subdivisions, SWING_3_SUB);
   }
 
   public void setSwing5() {
-    subdivisions = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.NORMAL, TICK_TYPE.MUTED
-    ).split(",");
+    subdivisions = SWING_5.clone();
   }
 
   public boolean isSwing5() {
-    String quintuplet = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.SUB, TICK_TYPE.MUTED
-    );
-    String quintupletAlt = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.NORMAL, TICK_TYPE.MUTED
-    );
-    String subdivisions = String.join(",", this.subdivisions);
-    return subdivisions.equals(quintuplet) || subdivisions.equals(quintupletAlt);
+    return Arrays.equals(subdivisions, SWING_5) || Arrays.equals(subdivisions, SWING_5_SUB);
   }
 
   public void setSwing7() {
-    subdivisions = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED,
-        TICK_TYPE.NORMAL, TICK_TYPE.MUTED, TICK_TYPE.MUTED
-    ).split(",");
+    subdivisions = SWING_7.clone();
   }
 
   public boolean isSwing7() {
-    String septuplet = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED,
-        TICK_TYPE.SUB, TICK_TYPE.MUTED, TICK_TYPE.MUTED
-    );
-    String septupletAlt = String.join(
-        ",",
-        TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED, TICK_TYPE.MUTED,
-        TICK_TYPE.NORMAL, TICK_TYPE.MUTED, TICK_TYPE.MUTED
-    );
-    String subdivisions = String.join(",", this.subdivisions);
-    return subdivisions.equals(septuplet) || subdivisions.equals(septupletAlt);
+    return Arrays.equals(subdivisions, SWING_7) || Arrays.equals(subdivisions, SWING_7_SUB);
   }
 
   public boolean isSwingActive() {
     return isSwing3() || isSwing5() || isSwing7();
   }
 
+  public String[] getLayers() {
+    return layers;
+  }
+
+  public void setLayers(String[] layers) {
+    this.layers = layers;
+  }
+
+  public void setLayers(String layers) {
+    this.layers = parseLayers(layers);
+  }
+
+  /**
+   * Returns the number of pulses of the layer over one bar or 0 if the layer is inactive
+   */
+  public int getLayerPulses(int layer) {
+    return layer < layers.length ? getLayerPulses(layers[layer]) : 0;
+  }
+
+  /**
+   * Sets the pulses of the layer, inactive layers at the end are removed
+   */
+  public void setLayerPulses(int layer, int pulses) {
+    String[] layers = Arrays.copyOf(this.layers, Math.max(this.layers.length, layer + 1));
+    for (int i = this.layers.length; i < layers.length; i++) {
+      layers[i] = getLayer(0, SOUND.LAYERS[i % SOUND.LAYERS.length]);
+    }
+    layers[layer] = getLayer(pulses, getLayerSound(layers[layer]));
+    int count = layers.length;
+    while (count > 0 && getLayerPulses(layers[count - 1]) == 0) {
+      count--;
+    }
+    this.layers = Arrays.copyOf(layers, count);
+  }
+
+  public boolean isPolyrhythmActive() {
+    // inactive layers are only kept in front of active ones
+    return layers.length > 0;
+  }
+
+  public static String[] parseLayers(String layers) {
+    return layers.isEmpty() ? new String[0] : layers.split(",");
+  }
+
+  public static String getLayer(int pulses, String sound) {
+    return PolyrhythmLayers.getLayer(pulses, sound);
+  }
+
+  public static int getLayerPulses(String layer) {
+    return PolyrhythmLayers.getPulses(layer);
+  }
+
+  public static String getLayerSound(String layer) {
+    return PolyrhythmLayers.getSound(layer);
+  }
+
+  @Override
   public int getIncrementalAmount() {
     return incrementalAmount;
   }
@@ -346,6 +481,7 @@ public class MetronomeConfig {
     this.incrementalAmount = incrementalAmount;
   }
 
+  @Override
   public int getIncrementalInterval() {
     return incrementalInterval;
   }
@@ -354,6 +490,7 @@ public class MetronomeConfig {
     this.incrementalInterval = incrementalInterval;
   }
 
+  @Override
   public int getIncrementalLimit() {
     return incrementalLimit;
   }
@@ -370,6 +507,7 @@ public class MetronomeConfig {
     this.incrementalUnit = incrementalUnit;
   }
 
+  @Override
   public boolean isIncrementalIncrease() {
     return incrementalIncrease;
   }
@@ -378,6 +516,38 @@ public class MetronomeConfig {
     this.incrementalIncrease = incrementalIncrease;
   }
 
+  public String getIncrementalCurve() {
+    return incrementalCurve;
+  }
+
+  public void setIncrementalCurve(String incrementalCurve) {
+    this.incrementalCurve = incrementalCurve;
+  }
+
+  @Override
+  public int getRampUnit() {
+    switch (incrementalUnit) {
+      case UNIT.SECONDS:
+        return TempoRamp.UNIT_SECONDS;
+      case UNIT.MINUTES:
+        return TempoRamp.UNIT_MINUTES;
+      default:
+        return TempoRamp.UNIT_BARS;
+    }
+  }
+
+  @Override
+  public int getRampCurve() {
+    switch (incrementalCurve != null ? incrementalCurve : CURVE.STEP) {
+      case CURVE.LINEAR:
+        return TempoRamp.CURVE_LINEAR;
+      case CURVE.EXPONENTIAL:
+        return TempoRamp.CURVE_EXPONENTIAL;
+      default:
+        return TempoRamp.CURVE_STEP;
+    }
+  }
+
   public boolean isIncrementalActive() {
     return incrementalAmount > 0;
   }
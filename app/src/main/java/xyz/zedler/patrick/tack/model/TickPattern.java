@@ -0,0 +1,103 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.model;
+
+import androidx.annotation.NonNull;
+import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
+
+/**
+ * Beat and subdivision patterns as one byte per tick for the engine, so no strings are compared
+ * or joined while playing. The tick type strings are only used for persistence and the views.
+ */
+public class TickPattern {
+
+  public static final byte NORMAL = 0;
+  public static final byte STRONG = 1;
+  public static final byte SUB = 2;
+  public static final byte MUTED = 3;
+
+  /**
+   * Unknown types are played as normal ticks
+   */
+  public static byte getType(@NonNull String tickType) {
+    switch (tickType) {
+      case TICK_TYPE.STRONG:
+        return STRONG;
+      case TICK_TYPE.SUB:
+        return SUB;
+      case TICK_TYPE.MUTED:
+        return MUTED;
+      default:
+        return NORMAL;
+    }
+  }
+
+  @NonNull
+  public static String getTickType(byte type) {
+    switch (type) {
+      case STRONG:
+        return TICK_TYPE.STRONG;
+      case SUB:
+        return TICK_TYPE.SUB;
+      case MUTED:
+        return TICK_TYPE.MUTED;
+      default:
+        return TICK_TYPE.NORMAL;
+    }
+  }
+
+  @NonNull
+  public static byte[] parse(@NonNull String[] tickTypes) {
+    byte[] pattern = new byte[tickTypes.length];
+    for (int i = 0; i < tickTypes.length; i++) {
+      pattern[i] = getType(tickTypes[i]);
+    }
+    return pattern;
+  }
+
+  /**
+   * @param pattern comma separated tick types as stored in preferences and parts
+   */
+  @NonNull
+  public static byte[] parse(@NonNull String pattern) {
+    return parse(pattern.split(","));
+  }
+
+  @NonNull
+  public static String[] toTickTypes(@NonNull byte[] pattern) {
+    String[] tickTypes = new String[pattern.length];
+    for (int i = 0; i < pattern.length; i++) {
+      tickTypes[i] = getTickType(pattern[i]);
+    }
+    return tickTypes;
+  }
+
+  @NonNull
+  public static String join(@NonNull byte[] pattern) {
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; i < pattern.length; i++) {
+      if (i > 0) {
+        builder.append(',');
+      }
+      builder.append(getTickType(pattern[i]));
+    }
+    return builder.toString();
+  }
+}
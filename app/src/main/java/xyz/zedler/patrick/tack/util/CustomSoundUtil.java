@@ -0,0 +1,289 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.util;
+
+import android.content.Context;
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.net.Uri;
+import android.os.Build.VERSION;
+import android.os.Build.VERSION_CODES;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import xyz.zedler.patrick.tack.core.ResampleUtil;
+import xyz.zedler.patrick.tack.core.WavUtil;
+import xyz.zedler.patrick.tack.core.WavUtil.WavData;
+
+/**
+ * Imports user samples for the custom sound. Files are transcoded once on a background thread
+ * to mono float WAV files at the sample rate of the engine and stored in the app storage.
+ */
+public class CustomSoundUtil {
+
+  private static final String TAG = CustomSoundUtil.class.getSimpleName();
+
+  private static final String DIRECTORY = "custom_sound";
+  private static final String EXTENSION = ".wav";
+  // longer samples would overlap the next tick at most tempos anyway
+  private static final int MAX_DURATION_MS = 2000;
+  private static final long CODEC_TIMEOUT_US = 10000;
+
+  // shared so imports are processed one after another
+  private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
+
+  private final Context context;
+  private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+  public CustomSoundUtil(@NonNull Context context) {
+    this.context = context.getApplicationContext();
+  }
+
+  /**
+   * Transcodes the file in the background and stores it as sample for the given tick type.
+   * The listener is called on the main thread.
+   */
+  public void importSample(
+      @NonNull Uri uri, @NonNull String tickType, int sampleRate,
+      @NonNull ImportListener listener
+  ) {
+    executorService.execute(() -> {
+      try {
+        float[] data = decode(uri, sampleRate);
+        File file = getFile(tickType);
+        File directory = file.getParentFile();
+        if (directory != null && !directory.exists() && !directory.mkdirs()) {
+          throw new IOException("Could not create directory");
+        }
+        File temp = new File(file.getPath() + ".tmp");
+        try (OutputStream output = new FileOutputStream(temp)) {
+          WavUtil.writeWav(output, data, sampleRate);
+        }
+        if (!temp.renameTo(file)) {
+          throw new IOException("Could not rename " + temp.getName());
+        }
+        mainHandler.post(listener::onImported);
+      } catch (Exception e) {
+        Log.e(TAG, "importSample: failed to import " + uri, e);
+        mainHandler.post(listener::onError);
+      }
+    });
+  }
+
+  /**
+   * Returns the stored sample for the given tick type or null if there is none
+   */
+  @Nullable
+  public WavData readSample(@NonNull String tickType) {
+    File file = getFile(tickType);
+    if (!file.exists()) {
+      return null;
+    }
+    try (InputStream input = new BufferedInputStream(new FileInputStream(file))) {
+      return WavUtil.readWav(input, MAX_DURATION_MS);
+    } catch (IOException e) {
+      Log.e(TAG, "readSample: failed to read " + file.getName(), e);
+      return null;
+    }
+  }
+
+  public boolean hasSample(@NonNull String tickType) {
+    return getFile(tickType).exists();
+  }
+
+  public void deleteSample(@NonNull String tickType) {
+    //noinspection ResultOfMethodCallIgnored
+    getFile(tickType).delete();
+  }
+
+  private File getFile(String tickType) {
+    return new File(new File(context.getFilesDir(), DIRECTORY), tickType + EXTENSION);
+  }
+
+  private float[] decode(Uri uri, int sampleRate) throws IOException {
+    WavData wav = null;
+    InputStream stream = context.getContentResolver().openInputStream(uri);
+    if (stream == null) {
+      throw new IOException("Could not open " + uri);
+    }
+    try (InputStream input = new BufferedInputStream(stream)) {
+      // WAV files are decoded directly, everything else with the platform decoder
+      input.mark(4);
+      byte[] id = new byte[4];
+      if (input.read(id) == 4 && new String(id, StandardCharsets.US_ASCII).equals("RIFF")) {
+        input.reset();
+        try {
+          // only the allowed duration is decoded
+          wav = WavUtil.readWav(input, MAX_DURATION_MS);
+        } catch (IOException e) {
+          // e.g. compressed WAV formats, try the platform decoder
+          Log.w(TAG, "decode: unsupported WAV, falling back to codec: " + e.getMessage());
+        }
+      }
+    }
+    if (wav == null) {
+      wav = decodeWithCodec(uri);
+    }
+    float[] data = wav.data;
+    int maxLength = (int) ((long) wav.sampleRate * MAX_DURATION_MS / 1000);
+    if (data.length > maxLength) {
+      data = Arrays.copyOf(data, maxLength);
+    }
+    if (data.length == 0) {
+      throw new IOException("No audio data");
+    }
+    return ResampleUtil.resample(data, wav.sampleRate, sampleRate);
+  }
+
+  private WavData decodeWithCodec(Uri uri) throws IOException {
+    MediaExtractor extractor = new MediaExtractor();
+    MediaCodec codec = null;
+    try {
+      extractor.setDataSource(context, uri, null);
+      MediaFormat format = null;
+      for (int i = 0; i < extractor.getTrackCount(); i++) {
+        MediaFormat trackFormat = extractor.getTrackFormat(i);
+        String mime = trackFormat.getString(MediaFormat.KEY_MIME);
+        if (mime != null && mime.startsWith("audio/")) {
+          extractor.selectTrack(i);
+          format = trackFormat;
+          break;
+        }
+      }
+      if (format == null) {
+        throw new IOException("No audio track found");
+      }
+      int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+      int channels = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+      int encoding = AudioFormat.ENCODING_PCM_16BIT;
+      int maxLength = (int) ((long) sampleRate * MAX_DURATION_MS / 1000);
+
+      codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+      codec.configure(format, null, null, 0);
+      codec.start();
+
+      float[] data = new float[maxLength];
+      int length = 0;
+      MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+      boolean inputDone = false;
+      boolean outputDone = false;
+      while (!outputDone && length < maxLength) {
+        if (!inputDone) {
+          int inputIndex = codec.dequeueInputBuffer(CODEC_TIMEOUT_US);
+          if (inputIndex >= 0) {
+            ByteBuffer inputBuffer = codec.getInputBuffer(inputIndex);
+            int size = inputBuffer != null ? extractor.readSampleData(inputBuffer, 0) : -1;
+            if (size < 0) {
+              codec.queueInputBuffer(
+                  inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM
+              );
+              inputDone = true;
+            } else {
+              codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+              extractor.advance();
+            }
+          }
+        }
+        int outputIndex = codec.dequeueOutputBuffer(info, CODEC_TIMEOUT_US);
+        if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+          MediaFormat outputFormat = codec.getOutputFormat();
+          sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+          channels = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+          if (VERSION.SDK_INT >= VERSION_CODES.N
+              && outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)) {
+            encoding = outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING);
+          }
+          maxLength = (int) ((long) sampleRate * MAX_DURATION_MS / 1000);
+          if (data.length < maxLength) {
+            data = Arrays.copyOf(data, maxLength);
+          }
+        } else if (outputIndex >= 0) {
+          ByteBuffer outputBuffer = codec.getOutputBuffer(outputIndex);
+          if (outputBuffer != null && info.size > 0) {
+            outputBuffer.position(info.offset);
+            outputBuffer.limit(info.offset + info.size);
+            outputBuffer.order(ByteOrder.nativeOrder());
+            length = readPcm(outputBuffer, encoding, channels, data, length, maxLength);
+          }
+          codec.releaseOutputBuffer(outputIndex, false);
+          if ((info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+            outputDone = true;
+          }
+        }
+      }
+      return new WavData(Arrays.copyOf(data, length), sampleRate);
+    } finally {
+      if (codec != null) {
+        try {
+          codec.stop();
+        } catch (IllegalStateException e) {
+          Log.e(TAG, "decodeWithCodec: failed to stop codec", e);
+        }
+        codec.release();
+      }
+      extractor.release();
+    }
+  }
+
+  /**
+   * Mixes the interleaved decoder output down to mono and appends it to the data
+   *
+   * @return the new length of the data
+   */
+  private static int readPcm(
+      ByteBuffer buffer, int encoding, int channels, float[] data, int length, int maxLength
+  ) {
+    boolean isFloat = encoding == AudioFormat.ENCODING_PCM_FLOAT;
+    int bytesPerSample = isFloat ? Float.BYTES : Short.BYTES;
+    int frames = buffer.remaining() / (bytesPerSample * channels);
+    for (int i = 0; i < frames && length < maxLength; i++) {
+      float sum = 0;
+      for (int channel = 0; channel < channels; channel++) {
+        sum += isFloat ? buffer.getFloat() : buffer.getShort() / 32768f;
+      }
+      data[length++] = sum / channels;
+    }
+    return length;
+  }
+
+  public interface ImportListener {
+
+    void onImported();
+
+    void onError();
+  }
+}
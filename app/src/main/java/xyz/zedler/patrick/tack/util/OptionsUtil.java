@@ -33,8 +33,11 @@ import com.google.android.material.button.MaterialButtonToggleGroup.OnButtonChec
 import com.google.android.material.slider.Slider;
 import com.google.android.material.slider.Slider.OnChangeListener;
 import com.google.android.material.slider.Slider.OnSliderTouchListener;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import xyz.zedler.patrick.tack.Constants;
+import xyz.zedler.patrick.tack.Constants.CURVE;
 import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
 import xyz.zedler.patrick.tack.Constants.UNIT;
 import xyz.zedler.patrick.tack.R;
@@ -58,7 +61,8 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
   private final boolean useDialog, editPart;
   private Runnable onModifiersCountChanged, onTimerChanged, onSubsChanged;
   private OnPartUpdatedListener onPartUpdatedListener;
-  private boolean isCountInActive, isIncrementalActive, isTimerActive, isMuteActive;
+  private boolean isCountInActive, isPolyrhythmActive, isIncrementalActive, isTimerActive;
+  private boolean isMuteActive;
   private boolean isInitialized;
   private DialogUtil dialogUtil;
   private PartialOptionsBinding binding;
@@ -85,6 +89,8 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
 
     if (binding != null) {
       binding.sliderOptionsCountIn.addOnSliderTouchListener(this);
+      binding.sliderOptionsPolyrhythmLayer1.addOnSliderTouchListener(this);
+      binding.sliderOptionsPolyrhythmLayer2.addOnSliderTouchListener(this);
       binding.sliderOptionsIncrementalAmount.addOnSliderTouchListener(this);
       binding.sliderOptionsIncrementalInterval.addOnSliderTouchListener(this);
       binding.sliderOptionsIncrementalLimit.addOnSliderTouchListener(this);
@@ -122,6 +128,7 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
     }
     MetronomeConfig config = getConfig();
     isCountInActive = config.isCountInActive();
+    isPolyrhythmActive = config.isPolyrhythmActive();
     isIncrementalActive = config.isIncrementalActive();
     isTimerActive = config.isTimerActive();
     isMuteActive = config.isMuteActive();
@@ -211,6 +218,7 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
     updateBeats();
     updateSubdivisions();
     updateCountIn();
+    updatePolyrhythm();
     updateIncremental();
     updateTimer();
     updateMute();
@@ -391,6 +399,43 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
     );
   }
 
+  private void updatePolyrhythm() {
+    if (getConfig() == null) {
+      return;
+    }
+    boolean isPolyrhythmActive = getConfig().isPolyrhythmActive();
+    if (this.isPolyrhythmActive != isPolyrhythmActive) {
+      this.isPolyrhythmActive = isPolyrhythmActive;
+      if (onModifiersCountChanged != null) {
+        onModifiersCountChanged.run();
+      }
+    }
+    Slider[] sliders = new Slider[]{
+        binding.sliderOptionsPolyrhythmLayer1, binding.sliderOptionsPolyrhythmLayer2
+    };
+    List<String> pulses = new ArrayList<>();
+    for (int i = 0; i < sliders.length; i++) {
+      int layerPulses = getConfig().getLayerPulses(i);
+      if (layerPulses > 0) {
+        pulses.add(String.valueOf(layerPulses));
+      }
+      sliders[i].removeOnChangeListener(this);
+      sliders[i].setValue(Math.min(layerPulses, Constants.LAYER_PULSES_MAX));
+      sliders[i].addOnChangeListener(this);
+    }
+    if (isPolyrhythmActive) {
+      int beatsCount = getConfig().getBeatsCount();
+      binding.textOptionsPolyrhythm.setText(
+          activity.getResources().getQuantityString(
+              R.plurals.options_polyrhythm_description, beatsCount,
+              String.join(" + ", pulses), beatsCount
+          )
+      );
+    } else {
+      binding.textOptionsPolyrhythm.setText(R.string.options_inactive);
+    }
+  }
+
   private void updateIncremental() {
     if (getConfig() == null) {
       return;
@@ -522,6 +567,23 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
     binding.toggleOptionsIncrementalUnit.addOnButtonCheckedListener(this);
     binding.toggleOptionsIncrementalUnit.setEnabled(isIncrementalActive);
 
+    int curveCheckedId;
+    switch (getConfig().getIncrementalCurve()) {
+      case CURVE.LINEAR:
+        curveCheckedId = R.id.button_options_incremental_curve_linear;
+        break;
+      case CURVE.EXPONENTIAL:
+        curveCheckedId = R.id.button_options_incremental_curve_exponential;
+        break;
+      default:
+        curveCheckedId = R.id.button_options_incremental_curve_step;
+        break;
+    }
+    binding.toggleOptionsIncrementalCurve.removeOnButtonCheckedListener(this);
+    binding.toggleOptionsIncrementalCurve.check(curveCheckedId);
+    binding.toggleOptionsIncrementalCurve.addOnButtonCheckedListener(this);
+    binding.toggleOptionsIncrementalCurve.setEnabled(isIncrementalActive);
+
     int incrementalLimit = getConfig().getIncrementalLimit();
     /* When slider should be automatically adjusted to tempo
     int tempo = getMetronomeEngine().getTempo();
@@ -1020,6 +1082,20 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
         metronomeEngine.maybeUpdateDefaultSong();
       }
       updateIncremental();
+    } else if (groupId == R.id.toggle_options_incremental_curve) {
+      String curve = CURVE.STEP;
+      if (checkedId == R.id.button_options_incremental_curve_linear) {
+        curve = CURVE.LINEAR;
+      } else if (checkedId == R.id.button_options_incremental_curve_exponential) {
+        curve = CURVE.EXPONENTIAL;
+      }
+      if (editPart) {
+        config.setIncrementalCurve(curve);
+      } else {
+        metronomeEngine.setIncrementalCurve(curve);
+        metronomeEngine.maybeUpdateDefaultSong();
+      }
+      updateIncremental();
     } else if (groupId == R.id.toggle_options_timer_unit) {
       String unit = UNIT.BARS;
       if (checkedId == R.id.button_options_timer_unit_seconds) {
@@ -1114,6 +1190,16 @@ public class OptionsUtil implements OnClickListener, OnButtonCheckedListener,
         metronomeEngine.setCountIn((int) value);
       }
       updateCountIn();
+    } else if (id == R.id.slider_options_polyrhythm_layer_1
+        || id == R.id.slider_options_polyrhythm_layer_2) {
+      activity.performHapticSegmentTick(slider, false);
+      int layer = id == R.id.slider_options_polyrhythm_layer_1 ? 0 : 1;
+      if (editPart) {
+        config.setLayerPulses(layer, (int) value);
+      } else {
+        metronomeEngine.setLayerPulses(layer, (int) value);
+      }
+      updatePolyrhythm();
     } else if (id == R.id.slider_options_incremental_amount) {
       activity.performHapticSegmentTick(slider, true);
       if (editPart) {
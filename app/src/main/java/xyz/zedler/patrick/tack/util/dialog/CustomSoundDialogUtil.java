@@ -0,0 +1,222 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.util.dialog;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.view.View;
+import android.view.View.OnClickListener;
+import android.view.ViewTreeObserver;
+import android.widget.Toast;
+import androidx.activity.result.ActivityResultLauncher;
+import androidx.activity.result.contract.ActivityResultContracts;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import xyz.zedler.patrick.tack.Constants.SOUND;
+import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
+import xyz.zedler.patrick.tack.R;
+import xyz.zedler.patrick.tack.activity.MainActivity;
+import xyz.zedler.patrick.tack.databinding.PartialDialogCustomSoundBinding;
+import xyz.zedler.patrick.tack.fragment.BaseFragment;
+import xyz.zedler.patrick.tack.metronome.MetronomeEngine;
+import xyz.zedler.patrick.tack.util.CustomSoundUtil;
+import xyz.zedler.patrick.tack.util.CustomSoundUtil.ImportListener;
+import xyz.zedler.patrick.tack.util.DialogUtil;
+import xyz.zedler.patrick.tack.util.UiUtil;
+import xyz.zedler.patrick.tack.util.ViewUtil;
+
+public class CustomSoundDialogUtil implements OnClickListener {
+
+  private static final String TAG = CustomSoundDialogUtil.class.getSimpleName();
+
+  private final MainActivity activity;
+  private final PartialDialogCustomSoundBinding binding;
+  private final DialogUtil dialogUtil;
+  private final ViewUtil viewUtil = new ViewUtil();
+  private final CustomSoundUtil customSoundUtil;
+  private final ActivityResultLauncher<String[]> launcherImport;
+  private String importTickType;
+
+  public CustomSoundDialogUtil(MainActivity activity, BaseFragment fragment) {
+    this.activity = activity;
+
+    binding = PartialDialogCustomSoundBinding.inflate(activity.getLayoutInflater());
+    customSoundUtil = new CustomSoundUtil(activity);
+
+    dialogUtil = new DialogUtil(activity, "custom_sound");
+    dialogUtil.createDialog(builder -> {
+      builder.setTitle(R.string.settings_custom_sound);
+      builder.setView(binding.getRoot());
+      builder.setPositiveButton(
+          R.string.action_close, (dialog, which) -> activity.performHapticClick()
+      );
+      builder.setNegativeButton(R.string.action_reset, (dialog, which) -> {
+        activity.performHapticClick();
+        customSoundUtil.deleteSample(TICK_TYPE.STRONG);
+        customSoundUtil.deleteSample(TICK_TYPE.NORMAL);
+        customSoundUtil.deleteSample(TICK_TYPE.SUB);
+        reloadSound();
+      });
+    });
+
+    launcherImport = fragment.registerForActivityResult(
+        new ActivityResultContracts.OpenDocument(),
+        this::importSample
+    );
+
+    ViewUtil.setOnClickListeners(
+        this,
+        binding.linearCustomSoundStrong,
+        binding.linearCustomSoundNormal,
+        binding.linearCustomSoundSub
+    );
+
+    setDividerVisibility(!UiUtil.isOrientationPortrait(activity));
+  }
+
+  public void show() {
+    update();
+    dialogUtil.show();
+  }
+
+  public void showIfWasShown(@Nullable Bundle state) {
+    update();
+    dialogUtil.showIfWasShown(state);
+  }
+
+  public void dismiss() {
+    dialogUtil.dismiss();
+  }
+
+  public void saveState(@NonNull Bundle outState) {
+    if (dialogUtil != null) {
+      dialogUtil.saveState(outState);
+    }
+  }
+
+  public void update() {
+    if (binding == null) {
+      return;
+    }
+    binding.scrollCustomSound.scrollTo(0, 0);
+    measureScrollView();
+    updateDescriptions();
+  }
+
+  @Override
+  public void onClick(View v) {
+    int id = v.getId();
+    if (viewUtil.isClickDisabled(id)) {
+      return;
+    } else {
+      activity.performHapticClick();
+    }
+
+    if (id == R.id.linear_custom_sound_strong) {
+      importTickType = TICK_TYPE.STRONG;
+    } else if (id == R.id.linear_custom_sound_normal) {
+      importTickType = TICK_TYPE.NORMAL;
+    } else if (id == R.id.linear_custom_sound_sub) {
+      importTickType = TICK_TYPE.SUB;
+    } else {
+      return;
+    }
+    launcherImport.launch(new String[]{"audio/*"});
+  }
+
+  private void importSample(Uri uri) {
+    MetronomeEngine metronomeEngine = activity.getMetronomeEngine();
+    if (uri == null || importTickType == null || metronomeEngine == null) {
+      return;
+    }
+    setImporting(true);
+    customSoundUtil.importSample(
+        uri, importTickType, metronomeEngine.getSampleRate(), new ImportListener() {
+          @Override
+          public void onImported() {
+            setImporting(false);
+            updateDescriptions();
+            reloadSound();
+            showToast(R.string.msg_custom_sound_imported);
+          }
+
+          @Override
+          public void onError() {
+            setImporting(false);
+            showToast(R.string.msg_custom_sound_error);
+          }
+        }
+    );
+  }
+
+  private void reloadSound() {
+    if (activity.getMetronomeEngine() != null) {
+      activity.getMetronomeEngine().reloadSound(SOUND.CUSTOM);
+    }
+    updateDescriptions();
+  }
+
+  private void setImporting(boolean importing) {
+    binding.progressCustomSound.setVisibility(importing ? View.VISIBLE : View.GONE);
+    binding.linearCustomSoundStrong.setEnabled(!importing);
+    binding.linearCustomSoundNormal.setEnabled(!importing);
+    binding.linearCustomSoundSub.setEnabled(!importing);
+  }
+
+  private void updateDescriptions() {
+    binding.textCustomSoundStrong.setText(getDescription(TICK_TYPE.STRONG));
+    binding.textCustomSoundNormal.setText(getDescription(TICK_TYPE.NORMAL));
+    binding.textCustomSoundSub.setText(getDescription(TICK_TYPE.SUB));
+  }
+
+  private int getDescription(String tickType) {
+    return customSoundUtil.hasSample(tickType)
+        ? R.string.settings_custom_sound_imported
+        : R.string.settings_custom_sound_default;
+  }
+
+  private void showToast(int resId) {
+    Toast.makeText(activity, resId, Toast.LENGTH_SHORT).show();
+  }
+
+  private void measureScrollView() {
+    binding.scrollCustomSound.getViewTreeObserver().addOnGlobalLayoutListener(
+        new ViewTreeObserver.OnGlobalLayoutListener() {
+          @Override
+          public void onGlobalLayout() {
+            boolean isScrollable = binding.scrollCustomSound.canScrollVertically(-1)
+                || binding.scrollCustomSound.canScrollVertically(1);
+            setDividerVisibility(isScrollable);
+            binding.scrollCustomSound.getViewTreeObserver().removeOnGlobalLayoutListener(this);
+          }
+        });
+  }
+
+  private void setDividerVisibility(boolean visible) {
+    binding.dividerCustomSoundTop.setVisibility(visible ? View.VISIBLE : View.GONE);
+    binding.dividerCustomSoundBottom.setVisibility(visible ? View.VISIBLE : View.GONE);
+    binding.linearCustomSoundContainer.setPadding(
+        binding.linearCustomSoundContainer.getPaddingLeft(),
+        visible ? UiUtil.dpToPx(activity, 16) : 0,
+        binding.linearCustomSoundContainer.getPaddingRight(),
+        visible ? UiUtil.dpToPx(activity, 16) : 0
+    );
+  }
+}
@@ -26,6 +26,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import com.google.android.material.slider.Slider;
 import com.google.android.material.slider.Slider.OnChangeListener;
+import xyz.zedler.patrick.tack.Constants.TICK_TYPE;
 import xyz.zedler.patrick.tack.R;
 import xyz.zedler.patrick.tack.activity.MainActivity;
 import xyz.zedler.patrick.tack.databinding.PartialDialogGainBinding;
@@ -93,6 +94,20 @@ public class GainDialogUtil implements OnChangeListener {
       binding.sliderGain.removeOnChangeListener(this);
       binding.sliderGain.setValue(getMetronomeEngine().getGain());
       binding.sliderGain.addOnChangeListener(this);
+
+      Slider[] accentSliders = new Slider[]{
+          binding.sliderGainStrong, binding.sliderGainNormal, binding.sliderGainSub
+      };
+      String[] tickTypes = new String[]{TICK_TYPE.STRONG, TICK_TYPE.NORMAL, TICK_TYPE.SUB};
+      for (int i = 0; i < accentSliders.length; i++) {
+        Slider slider = accentSliders[i];
+        slider.removeOnChangeListener(this);
+        slider.setValue(Math.max(
+            slider.getValueFrom(),
+            Math.min(getMetronomeEngine().getAccentGain(tickTypes[i]), slider.getValueTo())
+        ));
+        slider.addOnChangeListener(this);
+      }
     }
   }
 
@@ -107,6 +122,18 @@ public class GainDialogUtil implements OnChangeListener {
       activity.performHapticSegmentTick(slider, false);
       updateValueDisplay();
       fragment.updateGainDescription((int) value);
+    } else if (id == R.id.slider_gain_strong) {
+      getMetronomeEngine().setAccentGain(TICK_TYPE.STRONG, (int) value);
+      activity.performHapticSegmentTick(slider, false);
+      updateValueDisplay();
+    } else if (id == R.id.slider_gain_normal) {
+      getMetronomeEngine().setAccentGain(TICK_TYPE.NORMAL, (int) value);
+      activity.performHapticSegmentTick(slider, false);
+      updateValueDisplay();
+    } else if (id == R.id.slider_gain_sub) {
+      getMetronomeEngine().setAccentGain(TICK_TYPE.SUB, (int) value);
+      activity.performHapticSegmentTick(slider, false);
+      updateValueDisplay();
     }
   }
 
@@ -116,11 +143,30 @@ public class GainDialogUtil implements OnChangeListener {
     }
     int gain = getMetronomeEngine().getGain();
     binding.textGainValue.setText(
+        activity.getString(R.string.label_db_signed, getSignedValue(gain))
+    );
+    binding.textGainStrong.setText(
         activity.getString(
-            R.string.label_db_signed,
-            gain > 0 ? "+" + gain : String.valueOf(gain)
+            R.string.settings_gain_strong,
+            getSignedValue(getMetronomeEngine().getAccentGain(TICK_TYPE.STRONG))
         )
     );
+    binding.textGainNormal.setText(
+        activity.getString(
+            R.string.settings_gain_normal,
+            getSignedValue(getMetronomeEngine().getAccentGain(TICK_TYPE.NORMAL))
+        )
+    );
+    binding.textGainSub.setText(
+        activity.getString(
+            R.string.settings_gain_sub,
+            getSignedValue(getMetronomeEngine().getAccentGain(TICK_TYPE.SUB))
+        )
+    );
+  }
+
+  private static String getSignedValue(int value) {
+    return value > 0 ? "+" + value : String.valueOf(value);
   }
 
   private void measureScrollView() {
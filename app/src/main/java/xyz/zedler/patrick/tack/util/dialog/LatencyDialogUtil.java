@@ -42,6 +42,7 @@ import xyz.zedler.patrick.tack.util.UiUtil;
 public class LatencyDialogUtil implements OnChangeListener, OnSliderTouchListener {
 
   private static final String TAG = LatencyDialogUtil.class.getSimpleName();
+  private static final int TRIM_MIN = -100;
 
   private final MainActivity activity;
   private final SettingsFragment fragment;
@@ -118,7 +119,16 @@ public class LatencyDialogUtil implements OnChangeListener, OnSliderTouchListene
     }
     updateValueDisplay();
 
+    boolean latencyAuto = getMetronomeEngine().getLatencyAuto();
+    binding.textLatencyDescription.setText(
+        latencyAuto
+            ? R.string.settings_latency_description_auto
+            : R.string.settings_latency_description
+    );
+
     binding.sliderLatency.removeOnChangeListener(this);
+    // with automatic latency the value is a residual trim and may be negative
+    binding.sliderLatency.setValueFrom(latencyAuto ? TRIM_MIN : 0);
     binding.sliderLatency.setValue(getMetronomeEngine().getLatency());
     binding.sliderLatency.addOnChangeListener(this);
     binding.sliderLatency.removeOnSliderTouchListener(this);
@@ -347,7 +347,7 @@ public class TempoDialogUtil implements OnButtonCheckedListener, OnCheckedChange
       return false;
     }
     try {
-      int tempo = Integer.parseInt(tempoString);
+      double tempo = parseTempo(tempoString);
       boolean valid = tempo >= Constants.TEMPO_MIN && tempo <= Constants.TEMPO_MAX;
       setError(!valid);
       return valid;
@@ -357,6 +357,12 @@ public class TempoDialogUtil implements OnButtonCheckedListener, OnCheckedChange
     }
   }
 
+  private static double parseTempo(String tempoString) throws NumberFormatException {
+    // fractional tempos are supported with a resolution of 0.01 bpm
+    double tempo = Double.parseDouble(tempoString.replace(',', '.'));
+    return Math.round(tempo * 100) / 100.0;
+  }
+
   private void setTempoFromInputAndDismiss() {
     MetronomeEngine metronomeEngine = getMetronomeEngine();
     if (binding == null || metronomeEngine == null) {
@@ -370,11 +376,12 @@ public class TempoDialogUtil implements OnButtonCheckedListener, OnCheckedChange
       if (tempoEditable == null) {
         return;
       }
-      int tempo = Integer.parseInt(tempoEditable.toString());
+      double tempo = parseTempo(tempoEditable.toString());
       if (listener != null) {
-        listener.onTempoChanged(tempo);
+        // same split into whole bpm and hundredths as MetronomeConfig.setTempoExact
+        listener.onTempoChanged((int) Math.round(tempo * 100) / 100);
       }
-      metronomeEngine.setTempo(tempo);
+      metronomeEngine.setTempoExact(tempo);
       metronomeEngine.maybeUpdateDefaultSong();
 
       binding.editTextTempo.clearFocus();
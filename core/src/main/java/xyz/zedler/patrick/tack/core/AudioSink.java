@@ -0,0 +1,43 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Streaming output of the rendered periods, implemented with an AudioTrack on the devices
+ */
+public interface AudioSink {
+
+  /**
+   * Writes mono float samples, blocks until all of them are queued for playback
+   *
+   * @return false if the stream is closed and the rest of the period should be dropped
+   */
+  boolean write(@NonNull float[] data, int size);
+
+  /**
+   * Returns the number of frames played since the start of the stream, wrapping around at
+   * 32 bits like the frame counter of AudioTrack
+   *
+   * @throws IllegalStateException if the position is not available
+   */
+  int getPlaybackHeadPosition();
+}
@@ -0,0 +1,87 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded multi-producer single-consumer ring of parameter changes for the audio thread. Several
+ * threads (UI, scheduler, loaders) may publish, they are serialized by a lock which the consumer
+ * never takes. So the audio thread drains the ring without locks or allocations at period
+ * boundaries and applies all changes published until then at once. A full ring rejects further
+ * commands.
+ */
+public class CommandQueue {
+
+  // power of two, holds the changes of fast slider movements during long periods
+  private static final int CAPACITY = 256;
+  private static final int MASK = CAPACITY - 1;
+
+  private final int[] types = new int[CAPACITY];
+  private final float[] values = new float[CAPACITY];
+  private final Object[] payloads = new Object[CAPACITY];
+  // head is only written by producers holding the lock, tail only by the consumer
+  private final AtomicLong head = new AtomicLong();
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Publishes a command, may be called from any thread except the consumer thread
+   *
+   * @return false if the ring is full and the command was dropped
+   */
+  public synchronized boolean offer(int type, float value, @Nullable Object payload) {
+    long head = this.head.get();
+    if (head - tail.get() >= CAPACITY) {
+      return false;
+    }
+    int index = (int) (head & MASK);
+    types[index] = type;
+    values[index] = value;
+    payloads[index] = payload;
+    // release the slot to the consumer after it was completely written
+    this.head.lazySet(head + 1);
+    return true;
+  }
+
+  /**
+   * Applies all published commands in order, must only be called from the consumer thread
+   *
+   * @return number of applied commands
+   */
+  public int drain(@NonNull CommandHandler handler) {
+    long tail = this.tail.get();
+    long head = this.head.get();
+    for (long i = tail; i < head; i++) {
+      int index = (int) (i & MASK);
+      handler.onCommand(types[index], values[index], payloads[index]);
+      payloads[index] = null;
+    }
+    if (head != tail) {
+      this.tail.lazySet(head);
+    }
+    return (int) (head - tail);
+  }
+
+  public interface CommandHandler {
+    void onCommand(int type, float value, @Nullable Object payload);
+  }
+}
@@ -0,0 +1,86 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.Nullable;
+import java.util.Arrays;
+
+/**
+ * Caches fully rendered tick periods (tick sound with level and limiter applied, followed by
+ * silence) for constant configurations. A bar only consists of a few distinct periods (strong,
+ * normal, sub and muted ticks), so every tick of the bar can be written directly from this cache.
+ * The buffers of the entries are allocated once with the maximum period size, the silence after
+ * the sound is valid for every shorter period. So a changing tempo never renders again and only
+ * a new sound or level overwrites an entry, without allocating.
+ */
+public class PeriodCache {
+
+  private static final int ENTRY_COUNT = 4;
+
+  private final int maxPeriodSize;
+  private final float[][] sources = new float[ENTRY_COUNT][];
+  private final float[][] periods;
+  private final int[] soundSizes = new int[ENTRY_COUNT];
+  private final float[] volumes = new float[ENTRY_COUNT];
+  private int nextEntry;
+
+  public PeriodCache(int maxPeriodSize) {
+    this.maxPeriodSize = maxPeriodSize;
+    periods = new float[ENTRY_COUNT][maxPeriodSize];
+  }
+
+  /**
+   * Returns a rendered period with at least periodSize frames or null if the period is too long
+   * to be cached. Must only be called from the audio thread.
+   */
+  @Nullable
+  public float[] get(float[] tickSound, int periodSize, float volume) {
+    if (periodSize > maxPeriodSize) {
+      return null;
+    }
+    for (int i = 0; i < ENTRY_COUNT; i++) {
+      // the same sound may be used for several tick types with different levels
+      if (sources[i] == tickSound && volumes[i] == volume) {
+        return periods[i];
+      }
+    }
+    int index = nextEntry;
+    nextEntry = (nextEntry + 1) % ENTRY_COUNT;
+    float[] period = periods[index];
+    int soundSize = Math.min(tickSound.length, maxPeriodSize);
+    for (int i = 0; i < soundSize; i++) {
+      period[i] = SoftLimiter.limit(tickSound[i] * volume);
+    }
+    // remainder of a longer previous sound
+    if (soundSizes[index] > soundSize) {
+      Arrays.fill(period, soundSize, soundSizes[index], 0);
+    }
+    sources[index] = tickSound;
+    soundSizes[index] = soundSize;
+    volumes[index] = volume;
+    return period;
+  }
+
+  public void clear() {
+    // buffers are kept, they are overwritten by the next sounds
+    Arrays.fill(sources, null);
+    nextEntry = 0;
+  }
+}
@@ -0,0 +1,60 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+/**
+ * Generates tick period sizes in frames without accumulating rounding errors. The fraction of a
+ * frame which can't be played in one period is carried over to the next one, so every tick stays
+ * within one frame of the ideal grid, regardless of the session length.
+ */
+public class PeriodGenerator {
+
+  private final long framesPerMinute;
+  private long denominator, remainder;
+
+  public PeriodGenerator(int sampleRate) {
+    // tempo is passed in hundredths of a bpm
+    framesPerMinute = 60L * sampleRate * 100;
+  }
+
+  public void reset() {
+    remainder = 0;
+  }
+
+  /**
+   * @param tempoHundredths  tempo in hundredths of a bpm
+   * @param subdivisionCount number of subdivisions per beat
+   * @return size of the next period in frames
+   */
+  public int next(int tempoHundredths, int subdivisionCount) {
+    long denominatorNew = (long) Math.max(1, tempoHundredths) * Math.max(1, subdivisionCount);
+    if (denominator != denominatorNew) {
+      if (denominator != 0) {
+        // keep the carried fraction when the tempo changes
+        remainder = remainder * denominatorNew / denominator;
+      }
+      denominator = denominatorNew;
+    }
+    remainder += framesPerMinute;
+    long frames = remainder / denominator;
+    remainder -= frames * denominator;
+    return (int) frames;
+  }
+}
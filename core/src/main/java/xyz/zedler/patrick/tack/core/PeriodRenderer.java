@@ -0,0 +1,84 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * Renders the period of a tick into a preallocated buffer and writes it to a sink. The tick sound
+ * is started at the first frame, the collected pulses of the polyrhythm layers at their exact
+ * offset, then the mix is soft limited. Periods longer than the buffer are split into several
+ * writes. Rendering does not allocate and must only be called from the thread writing to the
+ * sink.
+ */
+public class PeriodRenderer {
+
+  private final VoiceMixer voiceMixer;
+  private final PolyrhythmLayers polyrhythmLayers;
+  private final float[] renderBuffer;
+
+  /**
+   * @param bufferSize maximum number of frames written at once
+   */
+  public PeriodRenderer(
+      @NonNull VoiceMixer voiceMixer, @NonNull PolyrhythmLayers polyrhythmLayers, int bufferSize
+  ) {
+    this.voiceMixer = voiceMixer;
+    this.polyrhythmLayers = polyrhythmLayers;
+    renderBuffer = new float[bufferSize];
+  }
+
+  /**
+   * @param tickSound  sound started at the first frame, null for muted ticks
+   * @param tickLevel  linear level of the tick sound
+   * @param pulseCount number of pulses collected in the polyrhythm layers for this period
+   * @param pulseLevel linear level of the pulses
+   * @return number of frames written, less than the period size if the sink was closed
+   */
+  public int render(
+      @NonNull AudioSink sink, @Nullable float[] tickSound, float tickLevel, int periodSize,
+      int pulseCount, float pulseLevel
+  ) {
+    if (tickSound != null) {
+      voiceMixer.start(tickSound, tickLevel);
+    }
+    int sizeWritten = 0;
+    int pulse = 0;
+    while (sizeWritten < periodSize) {
+      int size = Math.min(renderBuffer.length, periodSize - sizeWritten);
+      int sizeMixed = 0;
+      while (pulse < pulseCount && polyrhythmLayers.getOffset(pulse) < sizeWritten + size) {
+        int offset = polyrhythmLayers.getOffset(pulse) - sizeWritten;
+        voiceMixer.mix(renderBuffer, sizeMixed, offset - sizeMixed);
+        voiceMixer.start(polyrhythmLayers.getSound(pulse), pulseLevel);
+        sizeMixed = offset;
+        pulse++;
+      }
+      voiceMixer.mix(renderBuffer, sizeMixed, size - sizeMixed);
+      SoftLimiter.process(renderBuffer, size);
+      if (!sink.write(renderBuffer, size)) {
+        break;
+      }
+      sizeWritten += size;
+    }
+    return sizeWritten;
+  }
+}
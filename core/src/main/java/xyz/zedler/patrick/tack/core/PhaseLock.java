@@ -0,0 +1,119 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Locks the phase of a written stream to the scheduler clock. The phase is the number of frames
+ * between the scheduled tick time and the playback of the first tick frame, measured with the
+ * playback head of the sink. Its deviation from the phase after the start is corrected by a
+ * bounded change of the period size, so a late audio thread or a drifting output clock is caught
+ * up over several periods. Must only be used by the thread writing to the sink.
+ */
+public class PhaseLock {
+
+  private static final int WARMUP_PERIODS = 4;
+  private static final double SMOOTHING = 0.3;
+  private static final double GAIN = 0.5;
+  // bound of the correction in milliseconds per period
+  private static final int CORRECTION_MAX = 2;
+
+  private final AudioSink sink;
+  private final Clock clock;
+  private final int sampleRate;
+  private int periodCount;
+  private long reference, error;
+  private double errorSmoothed;
+
+  public PhaseLock(@NonNull AudioSink sink, @NonNull Clock clock, int sampleRate) {
+    this.sink = sink;
+    this.clock = clock;
+    this.sampleRate = sampleRate;
+  }
+
+  /**
+   * Starts a new measurement, must be called when the frame counters of the stream are reset
+   */
+  public void reset() {
+    periodCount = 0;
+  }
+
+  /**
+   * Measures the phase of the next period without correcting it, used when the written stream
+   * itself is the scheduler clock and only the phase error should be observed
+   *
+   * @param framesWritten number of frames written to the sink since the start of the stream
+   * @param tickTime      uptime in milliseconds at which the tick of the period was scheduled
+   * @return false if the playback head of the sink is not available
+   */
+  public boolean measure(long framesWritten, long tickTime) {
+    int queuedFrames;
+    try {
+      // both positions wrap around at 32 bits, their difference stays valid
+      queuedFrames = (int) framesWritten - sink.getPlaybackHeadPosition();
+    } catch (IllegalStateException e) {
+      return false;
+    }
+    long lateness = clock.uptimeMillis() - tickTime;
+    long phase = queuedFrames + lateness * sampleRate / 1000;
+    if (periodCount < WARMUP_PERIODS) {
+      // the sink has to reach its start threshold before the phase is stable
+      periodCount++;
+      reference = phase;
+      error = 0;
+      errorSmoothed = 0;
+      return true;
+    }
+    error = phase - reference;
+    errorSmoothed += (error - errorSmoothed) * SMOOTHING;
+    return true;
+  }
+
+  /**
+   * Measures the phase of the next period and returns the correction of its size
+   *
+   * @param framesWritten number of frames written to the sink since the start of the stream
+   * @param tickTime      uptime in milliseconds at which the tick of the period was scheduled
+   * @return number of frames to remove from the period, negative to add frames
+   */
+  public int getCorrection(long framesWritten, long tickTime, int periodSize) {
+    if (!measure(framesWritten, tickTime) || !isLocked()) {
+      return 0;
+    }
+    int correctionMax = Math.min(CORRECTION_MAX * sampleRate / 1000, periodSize / 8);
+    int correction = (int) Math.round(errorSmoothed * GAIN);
+    return Math.max(-correctionMax, Math.min(correction, correctionMax));
+  }
+
+  /**
+   * Returns whether the reference phase is measured and corrections are applied
+   */
+  public boolean isLocked() {
+    return periodCount >= WARMUP_PERIODS;
+  }
+
+  /**
+   * Returns the phase error of the last period in nanoseconds, positive if ticks are late
+   */
+  public long getErrorNanos() {
+    return error * 1_000_000_000L / sampleRate;
+  }
+}
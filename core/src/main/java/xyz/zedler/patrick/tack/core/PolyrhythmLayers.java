@@ -0,0 +1,150 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Layers of evenly spaced pulses over the bar of the main beats, e.g. three pulses against four
+ * beats. Pulses are not scheduled on their own, the pulses falling into the period of a tick are
+ * collected with their exact frame offset in that period and started by the mixer while the
+ * period is rendered. Collecting does not allocate, an instance must only be used by a single
+ * thread, the audio thread in the live engine.
+ */
+public class PolyrhythmLayers {
+
+  public static final int LAYERS_MAX = 2;
+  public static final int LAYER_PULSES_MAX = 16;
+  // each layer has at most all of its pulses in a single period
+  private static final int PULSES_MAX = LAYERS_MAX * LAYER_PULSES_MAX;
+
+  private final int[] offsets = new int[PULSES_MAX];
+  private final float[][] sounds = new float[PULSES_MAX][];
+  private Layer[] layers = new Layer[0];
+
+  public void setLayers(@NonNull Layer[] layers) {
+    this.layers = layers;
+  }
+
+  public boolean isEmpty() {
+    return layers.length == 0;
+  }
+
+  /**
+   * Collects the pulses of all layers in the period of the given tick, ordered by their offset
+   *
+   * @param tickIndex   index of the tick, bars start at multiples of ticksPerBar
+   * @param ticksPerBar number of beats multiplied by the number of subdivisions
+   * @return number of collected pulses, their offsets and sounds are available until next call
+   */
+  public int collect(long tickIndex, int ticksPerBar, int periodSize) {
+    Layer[] layers = this.layers;
+    int tickInBar = (int) (tickIndex % ticksPerBar);
+    int count = 0;
+    for (Layer layer : layers) {
+      int pulses = layer.pulses;
+      // pulse k is at the fractional tick k * ticksPerBar / pulses of the bar
+      long first = ((long) tickInBar * pulses + ticksPerBar - 1) / ticksPerBar;
+      long end = ((long) (tickInBar + 1) * pulses + ticksPerBar - 1) / ticksPerBar;
+      for (long pulse = first; pulse < end && count < PULSES_MAX; pulse++) {
+        long numerator = pulse * ticksPerBar - (long) tickInBar * pulses;
+        int offset = (int) (numerator * periodSize / pulses);
+        int index = count;
+        while (index > 0 && offsets[index - 1] > offset) {
+          offsets[index] = offsets[index - 1];
+          sounds[index] = sounds[index - 1];
+          index--;
+        }
+        offsets[index] = offset;
+        sounds[index] = layer.sound;
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Returns the offset in frames of the collected pulse from the start of the period
+   */
+  public int getOffset(int pulse) {
+    return offsets[pulse];
+  }
+
+  public float[] getSound(int pulse) {
+    return sounds[pulse];
+  }
+
+  /**
+   * Creates the active layers of the given pulses:sound definitions
+   */
+  @NonNull
+  public static Layer[] createLayers(@NonNull String[] layers, @NonNull SoundLoader loader) {
+    List<Layer> result = new ArrayList<>();
+    for (String layer : layers) {
+      int pulses = Math.min(getPulses(layer), LAYER_PULSES_MAX);
+      if (pulses > 0 && result.size() < LAYERS_MAX) {
+        result.add(new Layer(pulses, loader.load(getSound(layer))));
+      }
+    }
+    return result.toArray(new Layer[0]);
+  }
+
+  @NonNull
+  public static String getLayer(int pulses, @NonNull String sound) {
+    return pulses + ":" + sound;
+  }
+
+  /**
+   * Returns the number of pulses over one bar of the definition, 0 if it is inactive or invalid
+   */
+  public static int getPulses(@NonNull String layer) {
+    try {
+      return Integer.parseInt(layer.substring(0, layer.indexOf(':')));
+    } catch (NumberFormatException | IndexOutOfBoundsException e) {
+      return 0;
+    }
+  }
+
+  @NonNull
+  public static String getSound(@NonNull String layer) {
+    return layer.substring(layer.indexOf(':') + 1);
+  }
+
+  public static class Layer {
+
+    public final int pulses;
+    public final float[] sound;
+
+    public Layer(int pulses, @NonNull float[] sound) {
+      this.pulses = pulses;
+      this.sound = sound;
+    }
+  }
+
+  public interface SoundLoader {
+    /**
+     * Returns the samples of the given sound at the sample rate of the engine
+     */
+    @NonNull
+    float[] load(@NonNull String sound);
+  }
+}
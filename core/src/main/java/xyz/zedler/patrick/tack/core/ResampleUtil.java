@@ -0,0 +1,131 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+/**
+ * Band-limited resampling with a Kaiser-windowed sinc kernel. Intended to be used once when
+ * sounds are loaded, not in the render path.
+ */
+public class ResampleUtil {
+
+  // zero crossings of the sinc on each side of the kernel center
+  private static final int ZERO_CROSSINGS = 16;
+  // kernel table resolution per zero crossing, values in between are interpolated linearly
+  private static final int TABLE_RESOLUTION = 512;
+  private static final double KAISER_BETA = 8.6;
+  // slightly below nyquist to leave room for the transition band of the kernel
+  private static final double CUTOFF = 0.94;
+
+  private static float[] kernel;
+
+  /**
+   * Changes the pitch by the given amount of cents, the length changes inversely to the pitch.
+   */
+  public static float[] pitch(float[] data, int cents) {
+    if (cents == 0) {
+      return data;
+    }
+    return resample(data, getPitchFactor(cents));
+  }
+
+  /**
+   * Returns the length factor for a pitch change by the given amount of cents.
+   */
+  public static double getPitchFactor(int cents) {
+    return Math.pow(2, -cents / 1200d);
+  }
+
+  /**
+   * Resamples the data from one sample rate to another.
+   */
+  public static float[] resample(float[] data, int rateFrom, int rateTo) {
+    if (rateFrom == rateTo) {
+      return data;
+    }
+    return resample(data, (double) rateTo / rateFrom);
+  }
+
+  /**
+   * Resamples the data by the given factor, a factor of 2 doubles the length of the data.
+   */
+  public static float[] resample(float[] data, double factor) {
+    float[] table = getKernel();
+    int length = (int) Math.round(data.length * factor);
+    float[] output = new float[length];
+    // when the length is reduced, the cutoff has to be lowered to the new nyquist frequency
+    double cutoff = Math.min(1, factor) * CUTOFF;
+    // distance of the kernel zero crossings in input samples
+    double halfWidth = ZERO_CROSSINGS / cutoff;
+    double tableStep = cutoff * TABLE_RESOLUTION;
+    for (int n = 0; n < length; n++) {
+      double center = n / factor;
+      int start = Math.max(0, (int) Math.ceil(center - halfWidth));
+      int end = Math.min(data.length - 1, (int) Math.floor(center + halfWidth));
+      double sum = 0;
+      for (int k = start; k <= end; k++) {
+        double position = Math.abs(center - k) * tableStep;
+        int index = (int) position;
+        if (index >= table.length - 1) {
+          continue;
+        }
+        double fraction = position - index;
+        double weight = table[index] + (table[index + 1] - table[index]) * fraction;
+        sum += data[k] * weight;
+      }
+      output[n] = (float) (sum * cutoff);
+    }
+    return output;
+  }
+
+  private static synchronized float[] getKernel() {
+    if (kernel == null) {
+      // one side of the symmetric kernel, including the end point
+      int size = ZERO_CROSSINGS * TABLE_RESOLUTION + 1;
+      float[] table = new float[size];
+      double besselBeta = bessel0(KAISER_BETA);
+      for (int i = 0; i < size; i++) {
+        double x = (double) i / TABLE_RESOLUTION;
+        double sinc = i == 0 ? 1 : Math.sin(Math.PI * x) / (Math.PI * x);
+        double ratio = x / ZERO_CROSSINGS;
+        double window = bessel0(KAISER_BETA * Math.sqrt(1 - ratio * ratio)) / besselBeta;
+        table[i] = (float) (sinc * window);
+      }
+      kernel = table;
+    }
+    return kernel;
+  }
+
+  /**
+   * Zeroth order modified Bessel function of the first kind, used for the Kaiser window
+   */
+  private static double bessel0(double x) {
+    double sum = 1;
+    double term = 1;
+    double halfX = x / 2;
+    for (int k = 1; k < 50; k++) {
+      term *= (halfX / k) * (halfX / k);
+      sum += term;
+      if (term < sum * 1e-12) {
+        break;
+      }
+    }
+    return sum;
+  }
+}
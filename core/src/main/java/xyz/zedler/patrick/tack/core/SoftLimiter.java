@@ -0,0 +1,53 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+/**
+ * Stateless soft limiter for boosted tick sounds. Samples below the threshold pass unchanged,
+ * above it they are compressed smoothly towards full scale, so the output never clips and no
+ * look-ahead or envelope state is needed. Being stateless, rendered periods stay cacheable.
+ */
+public class SoftLimiter {
+
+  private static final float THRESHOLD = 0.8f;
+  private static final float HEADROOM = 1 - THRESHOLD;
+
+  private SoftLimiter() {}
+
+  public static float limit(float sample) {
+    float magnitude = Math.abs(sample);
+    if (magnitude <= THRESHOLD) {
+      return sample;
+    }
+    // approaches full scale asymptotically with a continuous slope of 1 at the threshold
+    float excess = (magnitude - THRESHOLD) / HEADROOM;
+    float limited = THRESHOLD + HEADROOM * excess / (1 + excess);
+    return sample < 0 ? -limited : limited;
+  }
+
+  /**
+   * Limits the first size samples of the buffer in place
+   */
+  public static void process(float[] buffer, int size) {
+    for (int i = 0; i < size; i++) {
+      buffer[i] = limit(buffer[i]);
+    }
+  }
+}
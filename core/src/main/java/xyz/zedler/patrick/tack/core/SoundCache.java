@@ -0,0 +1,102 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Process-wide cache of decoded and resampled sound sets, shared between all engine instances.
+ * The least recently used sets are evicted when the size limit is exceeded, the set in use is
+ * never evicted as it is the most recently used one.
+ */
+public class SoundCache {
+
+  private static final long MAX_SIZE_BYTES = 8 * 1024 * 1024;
+
+  private static final LinkedHashMap<String, SoundSet> soundSets = new LinkedHashMap<>(
+      8, 0.75f, true
+  );
+  private static long sizeBytes;
+
+  public static String getKey(@NonNull String sound, int sampleRate) {
+    return sound + "@" + sampleRate;
+  }
+
+  @Nullable
+  public static synchronized SoundSet get(@NonNull String key) {
+    return soundSets.get(key);
+  }
+
+  public static synchronized void put(@NonNull String key, @NonNull SoundSet soundSet) {
+    SoundSet previous = soundSets.put(key, soundSet);
+    if (previous != null) {
+      sizeBytes -= previous.getSizeBytes();
+    }
+    sizeBytes += soundSet.getSizeBytes();
+    Iterator<Map.Entry<String, SoundSet>> iterator = soundSets.entrySet().iterator();
+    while (sizeBytes > MAX_SIZE_BYTES && soundSets.size() > 1 && iterator.hasNext()) {
+      Map.Entry<String, SoundSet> eldest = iterator.next();
+      if (eldest.getKey().equals(key)) {
+        continue;
+      }
+      sizeBytes -= eldest.getValue().getSizeBytes();
+      iterator.remove();
+    }
+  }
+
+  public static synchronized void remove(@NonNull String key) {
+    SoundSet soundSet = soundSets.remove(key);
+    if (soundSet != null) {
+      sizeBytes -= soundSet.getSizeBytes();
+    }
+  }
+
+  public static synchronized void clear() {
+    soundSets.clear();
+    sizeBytes = 0;
+  }
+
+  public static class SoundSet {
+
+    public final float[] normal, strong, sub;
+
+    public SoundSet(float[] normal, float[] strong, float[] sub) {
+      this.normal = normal;
+      this.strong = strong;
+      this.sub = sub;
+    }
+
+    public long getSizeBytes() {
+      // identical arrays are only counted once
+      long size = normal.length;
+      if (strong != normal) {
+        size += strong.length;
+      }
+      if (sub != normal && sub != strong) {
+        size += sub.length;
+      }
+      return size * Float.BYTES;
+    }
+  }
+}
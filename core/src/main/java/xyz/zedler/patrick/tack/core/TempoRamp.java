@@ -0,0 +1,169 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Evaluates incremental tempo changes from the written periods instead of timers, so changes in
+ * bars, seconds or minutes are all placed on the audio clock. The amount is reached after every
+ * interval, either at once (steps) or continuously along a linear or exponential curve, then
+ * every tick period is computed from the curve. Must only be used by the thread performing the
+ * ticks.
+ */
+public class TempoRamp {
+
+  public static final int UNIT_BARS = 0;
+  public static final int UNIT_SECONDS = 1;
+  public static final int UNIT_MINUTES = 2;
+
+  public static final int CURVE_STEP = 0;
+  public static final int CURVE_LINEAR = 1;
+  public static final int CURVE_EXPONENTIAL = 2;
+
+  private final int sampleRate, tempoMin, tempoMax;
+  private boolean started;
+  private int startTempo;
+  private long ticks, frames;
+
+  /**
+   * @param tempoMin lowest tempo in bpm, bound of decreasing ramps without a limit
+   * @param tempoMax highest tempo in bpm, bound of increasing ramps without a limit
+   */
+  public TempoRamp(int sampleRate, int tempoMin, int tempoMax) {
+    this.sampleRate = sampleRate;
+    this.tempoMin = tempoMin;
+    this.tempoMax = tempoMax;
+  }
+
+  /**
+   * The ramp is started again from the current tempo with the next tick, e.g. after the tempo or
+   * the incremental options were changed
+   */
+  public void reset() {
+    started = false;
+  }
+
+  public boolean isStarted() {
+    return started;
+  }
+
+  /**
+   * @param tempoHundredths tempo at the start of the ramp in hundredths of a bpm
+   */
+  public void start(int tempoHundredths) {
+    startTempo = tempoHundredths;
+    ticks = 0;
+    frames = 0;
+    started = true;
+  }
+
+  /**
+   * Must be called with the size of every tick period written since the start
+   */
+  public void advance(int periodSize) {
+    ticks++;
+    frames += periodSize;
+  }
+
+  /**
+   * Returns the tempo of the next tick in hundredths of a bpm
+   */
+  public int getTempoHundredths(@NonNull Settings settings) {
+    int interval = Math.max(1, settings.getIncrementalInterval());
+    double position;
+    switch (settings.getRampUnit()) {
+      case UNIT_SECONDS:
+        position = frames / ((double) sampleRate * interval);
+        break;
+      case UNIT_MINUTES:
+        position = frames / ((double) sampleRate * 60 * interval);
+        break;
+      default:
+        long ticksPerBar = (long) settings.getBeatsCount() * settings.getSubdivisionsCount();
+        position = ticks / ((double) ticksPerBar * interval);
+        break;
+    }
+    return getTempoHundredths(settings, startTempo, position);
+  }
+
+  /**
+   * @param startTempo tempo at the start of the ramp in hundredths of a bpm
+   * @param position   elapsed intervals since the start of the ramp
+   */
+  public int getTempoHundredths(@NonNull Settings settings, int startTempo, double position) {
+    boolean increase = settings.isIncrementalIncrease();
+    int amount = settings.getIncrementalAmount() * 100 * (increase ? 1 : -1);
+    int limit = settings.getIncrementalLimit();
+    int bound = 100 * (limit != 0 ? limit : (increase ? tempoMax : tempoMin));
+    if (amount == 0 || (increase ? startTempo >= bound : startTempo <= bound)) {
+      return startTempo;
+    }
+    double tempo;
+    switch (settings.getRampCurve()) {
+      case CURVE_LINEAR:
+        tempo = startTempo + amount * position;
+        break;
+      case CURVE_EXPONENTIAL:
+        // the amount defines the ratio of the first interval
+        double ratio = Math.max(startTempo + amount, 100 * tempoMin) / (double) startTempo;
+        tempo = startTempo * Math.pow(ratio, position);
+        break;
+      default:
+        // like before ramps, the last step is skipped if it would exceed the limit
+        long steps = Math.min((long) Math.floor(position), (bound - startTempo) / amount);
+        tempo = startTempo + amount * steps;
+        break;
+    }
+    tempo = increase ? Math.min(tempo, bound) : Math.max(tempo, bound);
+    return (int) Math.round(tempo);
+  }
+
+  /**
+   * Incremental tempo change options, amounts and limits in bpm
+   */
+  public interface Settings {
+
+    int getIncrementalAmount();
+
+    int getIncrementalInterval();
+
+    /**
+     * @return tempo in bpm where the ramp stops, 0 for the tempo bounds
+     */
+    int getIncrementalLimit();
+
+    boolean isIncrementalIncrease();
+
+    /**
+     * @return one of the UNIT constants
+     */
+    int getRampUnit();
+
+    /**
+     * @return one of the CURVE constants
+     */
+    int getRampCurve();
+
+    int getBeatsCount();
+
+    int getSubdivisionsCount();
+  }
+}
@@ -0,0 +1,191 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import java.util.Arrays;
+
+/**
+ * Fixed pool of voices so the tail of a tick sound can overlap the following ticks instead of
+ * being cut at the period boundary. When more voices than the maximum polyphony are playing, the
+ * oldest one is faded out quickly to avoid a click. If the pool is full of fading voices, the rest
+ * of the fade of the oldest one is moved to a release buffer, so it is never cut either. Mixing
+ * does not allocate and must only be called from the audio thread.
+ */
+public class VoiceMixer {
+
+  public static final int POLYPHONY_MAX = 8;
+  // fading voices may temporarily exceed the maximum polyphony
+  private static final int POOL_SIZE = POLYPHONY_MAX * 2;
+
+  private final int fadeFrames;
+  private final float[][] sounds = new float[POOL_SIZE][];
+  private final int[] positions = new int[POOL_SIZE];
+  // end position of each voice, earlier than the sound length for fading voices
+  private final int[] ends = new int[POOL_SIZE];
+  private final boolean[] fading = new boolean[POOL_SIZE];
+  private final float[] gains = new float[POOL_SIZE];
+  // gain decrease per frame of fading voices, so the fade starts at the gain of the voice
+  private final float[] fadeSteps = new float[POOL_SIZE];
+  // remaining fades of dropped voices, starting at the next mixed frame
+  private final float[] release;
+  private int releasePosition, releaseSize;
+  private int voiceCount;
+  private int maxPolyphony;
+
+  public VoiceMixer(int maxPolyphony, int fadeFrames) {
+    this.fadeFrames = fadeFrames;
+    release = new float[fadeFrames];
+    setMaxPolyphony(maxPolyphony);
+  }
+
+  /**
+   * With a maximum polyphony of 1 every tick cuts off the previous one (with a short fade)
+   */
+  public void setMaxPolyphony(int maxPolyphony) {
+    this.maxPolyphony = Math.max(1, Math.min(maxPolyphony, POLYPHONY_MAX));
+  }
+
+  public int getMaxPolyphony() {
+    return maxPolyphony;
+  }
+
+  public boolean isIdle() {
+    return voiceCount == 0 && releasePosition == releaseSize;
+  }
+
+  public void reset() {
+    Arrays.fill(sounds, null);
+    voiceCount = 0;
+    releasePosition = 0;
+    releaseSize = 0;
+  }
+
+  /**
+   * Starts a new voice at the beginning of the next mixed frame
+   *
+   * @param gain linear level of the voice, it is kept for the whole sound
+   */
+  public void start(float[] sound, float gain) {
+    if (sound.length == 0) {
+      return;
+    }
+    int playingCount = 0;
+    for (int i = 0; i < voiceCount; i++) {
+      if (!fading[i]) {
+        playingCount++;
+      }
+    }
+    // voices are ordered by start time, fade out the oldest ones
+    for (int i = 0; i < voiceCount && playingCount >= maxPolyphony; i++) {
+      if (!fading[i]) {
+        fading[i] = true;
+        ends[i] = Math.min(ends[i], positions[i] + fadeFrames);
+        fadeSteps[i] = gains[i] / (ends[i] - positions[i]);
+        playingCount--;
+      }
+    }
+    if (voiceCount == POOL_SIZE) {
+      // pool is full of fading voices, the oldest one finishes its fade in the release buffer
+      releaseVoice(0);
+      remove(0);
+    }
+    sounds[voiceCount] = sound;
+    positions[voiceCount] = 0;
+    ends[voiceCount] = sound.length;
+    fading[voiceCount] = false;
+    gains[voiceCount] = gain;
+    voiceCount++;
+  }
+
+  /**
+   * Overwrites the first size frames of the buffer with the sum of all voices and advances them
+   */
+  public void mix(float[] buffer, int size) {
+    mix(buffer, 0, size);
+  }
+
+  /**
+   * Overwrites size frames of the buffer from the given offset on, voices started afterwards
+   * begin right behind these frames
+   */
+  public void mix(float[] buffer, int offset, int size) {
+    Arrays.fill(buffer, offset, offset + size, 0);
+    int releaseCount = Math.min(size, releaseSize - releasePosition);
+    for (int i = 0; i < releaseCount; i++) {
+      buffer[offset + i] = release[releasePosition + i];
+    }
+    releasePosition += releaseCount;
+    for (int voice = voiceCount - 1; voice >= 0; voice--) {
+      float[] sound = sounds[voice];
+      int position = positions[voice];
+      int count = Math.min(size, ends[voice] - position);
+      float volume = gains[voice];
+      if (fading[voice]) {
+        float step = fadeSteps[voice];
+        float gain = (ends[voice] - position) * step;
+        for (int i = 0; i < count; i++) {
+          buffer[offset + i] += sound[position + i] * gain;
+          gain -= step;
+        }
+      } else {
+        for (int i = 0; i < count; i++) {
+          buffer[offset + i] += sound[position + i] * volume;
+        }
+      }
+      positions[voice] = position + count;
+      if (positions[voice] >= ends[voice]) {
+        remove(voice);
+      }
+    }
+  }
+
+  /**
+   * Adds the remaining frames of a fading voice to the release buffer
+   */
+  private void releaseVoice(int voice) {
+    float[] sound = sounds[voice];
+    int position = positions[voice];
+    // fading voices end within the fade duration, the buffer always has room for them
+    int count = Math.min(ends[voice] - position, release.length);
+    int pending = releaseSize - releasePosition;
+    System.arraycopy(release, releasePosition, release, 0, pending);
+    Arrays.fill(release, pending, release.length, 0);
+    releasePosition = 0;
+    releaseSize = Math.max(pending, count);
+    float step = fadeSteps[voice];
+    float gain = (ends[voice] - position) * step;
+    for (int i = 0; i < count; i++) {
+      release[i] += sound[position + i] * gain;
+      gain -= step;
+    }
+  }
+
+  private void remove(int voice) {
+    int moved = voiceCount - voice - 1;
+    System.arraycopy(sounds, voice + 1, sounds, voice, moved);
+    System.arraycopy(positions, voice + 1, positions, voice, moved);
+    System.arraycopy(ends, voice + 1, ends, voice, moved);
+    System.arraycopy(fading, voice + 1, fading, voice, moved);
+    System.arraycopy(gains, voice + 1, gains, voice, moved);
+    System.arraycopy(fadeSteps, voice + 1, fadeSteps, voice, moved);
+    voiceCount--;
+    sounds[voiceCount] = null;
+  }
+}
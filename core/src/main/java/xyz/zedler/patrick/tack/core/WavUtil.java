@@ -0,0 +1,306 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Reading and writing of WAV files, shared by the phone and the watch
+ */
+public class WavUtil {
+
+  private static final int RIFF_HEADER_SIZE = 12;
+  private static final int CHUNK_HEADER_SIZE = 8;
+  private static final int FMT_SIZE = 16;
+  // size of the extensible fmt chunk, further bytes are skipped
+  private static final int FMT_SIZE_MAX = 40;
+  private static final int CHANNELS_MAX = 32;
+  private static final int SAMPLE_RATE_MIN = 1000;
+  private static final int SAMPLE_RATE_MAX = 768000;
+  // initial capacity of the decoded samples, grown while decoding instead of trusting the header
+  private static final int INITIAL_CAPACITY = 65536;
+  private static final int READ_BUFFER_SIZE = 8192;
+  private static final int FORMAT_PCM = 1;
+  private static final int FORMAT_FLOAT = 3;
+  private static final int FORMAT_EXTENSIBLE = 0xFFFE;
+  private static final byte[] RIFF_ID = "RIFF".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] WAVE_ID = "WAVE".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] FMT_ID = "fmt ".getBytes(StandardCharsets.US_ASCII);
+  private static final byte[] DATA_ID = "data".getBytes(StandardCharsets.US_ASCII);
+
+  /**
+   * Walks the RIFF chunks of a WAV file and decodes the data chunk straight into a float array.
+   * Supports 8/16/24/32 bit integer PCM and 32 bit float, multiple channels are mixed down to
+   * mono. The stream is read sequentially without copying the whole file into memory.
+   */
+  public static WavData readWav(InputStream input) throws IOException {
+    return readWav(input, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Like {@link #readWav(InputStream)}, but stops decoding after the given duration, so files
+   * from the user can not exhaust the memory
+   *
+   * @param maxDurationMs maximum duration of the decoded samples in milliseconds
+   */
+  public static WavData readWav(InputStream input, int maxDurationMs) throws IOException {
+    byte[] header = new byte[RIFF_HEADER_SIZE];
+    readFully(input, header, RIFF_HEADER_SIZE);
+    if (!hasId(header, 0, RIFF_ID) || !hasId(header, 8, WAVE_ID)) {
+      throw new IOException("Not a RIFF/WAVE file");
+    }
+    int format = -1, channels = 0, sampleRate = 0, bitsPerSample = 0;
+    byte[] chunkHeader = new byte[CHUNK_HEADER_SIZE];
+    while (true) {
+      readFully(input, chunkHeader, CHUNK_HEADER_SIZE);
+      long chunkSize = readInt(chunkHeader, 4) & 0xFFFFFFFFL;
+      if (hasId(chunkHeader, 0, FMT_ID)) {
+        if (chunkSize < FMT_SIZE) {
+          throw new IOException("Too short fmt chunk");
+        }
+        byte[] fmt = new byte[(int) Math.min(chunkSize, FMT_SIZE_MAX)];
+        readFully(input, fmt, fmt.length);
+        format = readShort(fmt, 0);
+        channels = readShort(fmt, 2);
+        sampleRate = readInt(fmt, 4);
+        bitsPerSample = readShort(fmt, 14);
+        if (format == FORMAT_EXTENSIBLE && fmt.length >= 26) {
+          // first two bytes of the sub format GUID are the actual format
+          format = readShort(fmt, 24);
+        }
+        if (channels < 1 || channels > CHANNELS_MAX) {
+          throw new IOException("Unsupported channel count " + channels);
+        }
+        if (sampleRate < SAMPLE_RATE_MIN || sampleRate > SAMPLE_RATE_MAX) {
+          throw new IOException("Unsupported sample rate " + sampleRate);
+        }
+        skipFully(input, chunkSize - fmt.length + (chunkSize & 1));
+      } else if (hasId(chunkHeader, 0, DATA_ID)) {
+        if (format < 0) {
+          throw new IOException("Missing fmt chunk before data chunk");
+        }
+        long maxFrames = (long) sampleRate * maxDurationMs / 1000;
+        float[] data = readSamples(
+            input, chunkSize, format, channels, bitsPerSample, maxFrames
+        );
+        return new WavData(data, sampleRate);
+      } else {
+        // skip unknown chunks like LIST or fact, chunks are padded to even sizes
+        skipFully(input, chunkSize + (chunkSize & 1));
+      }
+    }
+  }
+
+  /**
+   * Writes mono float samples as 32 bit float WAV file
+   */
+  public static void writeWav(
+      OutputStream output, float[] data, int sampleRate
+  ) throws IOException {
+    writeWavHeader(output, data.length, sampleRate);
+
+    ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_SIZE);
+    buffer.order(ByteOrder.LITTLE_ENDIAN);
+    for (float sample : data) {
+      if (!buffer.hasRemaining()) {
+        output.write(buffer.array(), 0, buffer.position());
+        buffer.clear();
+      }
+      buffer.putFloat(sample);
+    }
+    output.write(buffer.array(), 0, buffer.position());
+  }
+
+  /**
+   * Writes the header of a mono float WAV file, the given number of frames has to follow
+   */
+  public static void writeWavHeader(
+      OutputStream output, long frameCount, int sampleRate
+  ) throws IOException {
+    ByteBuffer header = ByteBuffer.allocate(
+        RIFF_HEADER_SIZE + CHUNK_HEADER_SIZE + FMT_SIZE + CHUNK_HEADER_SIZE
+    );
+    long dataSize = frameCount * Float.BYTES;
+    if (header.capacity() - CHUNK_HEADER_SIZE + dataSize > 0xFFFFFFFFL) {
+      throw new IOException("Too many frames for a WAV file: " + frameCount);
+    }
+    header.order(ByteOrder.LITTLE_ENDIAN);
+    header.put(RIFF_ID);
+    header.putInt((int) (header.capacity() - CHUNK_HEADER_SIZE + dataSize));
+    header.put(WAVE_ID);
+    header.put(FMT_ID);
+    header.putInt(FMT_SIZE);
+    header.putShort((short) FORMAT_FLOAT);
+    header.putShort((short) 1); // channels
+    header.putInt(sampleRate);
+    header.putInt(sampleRate * Float.BYTES); // byte rate
+    header.putShort((short) Float.BYTES); // block align
+    header.putShort((short) 32); // bits per sample
+    header.put(DATA_ID);
+    header.putInt((int) dataSize);
+    output.write(header.array());
+  }
+
+  private static float[] readSamples(
+      InputStream input, long size, int format, int channels, int bitsPerSample, long maxFrames
+  ) throws IOException {
+    int bytesPerSample = bitsPerSample / 8;
+    boolean isFloat = format == FORMAT_FLOAT && bitsPerSample == 32;
+    boolean isPcm = format == FORMAT_PCM && bytesPerSample >= 1 && bytesPerSample <= 4;
+    if ((!isFloat && !isPcm) || channels < 1) {
+      throw new IOException(
+          "Unsupported format " + format + " with " + bitsPerSample + " bits and "
+              + channels + " channels"
+      );
+    }
+    int frameSize = bytesPerSample * channels;
+    long frameCount = Math.min(size / frameSize, maxFrames);
+    if (frameCount > Integer.MAX_VALUE) {
+      throw new IOException("Too long data chunk");
+    }
+    // the declared size may be far larger than the file, grow with the decoded frames
+    float[] data = new float[(int) Math.min(frameCount, INITIAL_CAPACITY)];
+    byte[] buffer = new byte[Math.max(1, READ_BUFFER_SIZE / frameSize) * frameSize];
+    int frame = 0;
+    while (frame < frameCount) {
+      int length = (int) Math.min(buffer.length, (frameCount - frame) * frameSize);
+      int read = readAtLeast(input, buffer, length, frameSize);
+      int frames = read / frameSize;
+      if (frame + frames > data.length) {
+        data = Arrays.copyOf(data, (int) Math.min(frameCount, (long) data.length * 2));
+      }
+      for (int i = 0; i < frames; i++) {
+        float sum = 0;
+        int offset = i * frameSize;
+        for (int channel = 0; channel < channels; channel++) {
+          sum += isFloat
+              ? Float.intBitsToFloat(readInt(buffer, offset))
+              : decodePcm(buffer, offset, bytesPerSample);
+          offset += bytesPerSample;
+        }
+        data[frame++] = channels == 1 ? sum : sum / channels;
+      }
+      if (read < length) {
+        // truncated file, keep the decoded part
+        return Arrays.copyOf(data, frame);
+      }
+    }
+    return data;
+  }
+
+  private static float decodePcm(byte[] buffer, int offset, int bytesPerSample) {
+    switch (bytesPerSample) {
+      case 1:
+        // 8 bit samples are unsigned
+        return ((buffer[offset] & 0xFF) - 128) / 128f;
+      case 2:
+        return (short) readShort(buffer, offset) / 32768f;
+      case 3:
+        int value = (buffer[offset] & 0xFF)
+            | (buffer[offset + 1] & 0xFF) << 8
+            | buffer[offset + 2] << 16;
+        return value / 8388608f;
+      default:
+        return readInt(buffer, offset) / 2147483648f;
+    }
+  }
+
+  /**
+   * Reads until length bytes are read or the stream ends, returns the number of bytes read
+   * rounded down to a multiple of the frame size
+   */
+  private static int readAtLeast(
+      InputStream input, byte[] buffer, int length, int frameSize
+  ) throws IOException {
+    int total = 0;
+    while (total < length) {
+      int read = input.read(buffer, total, length - total);
+      if (read == -1) {
+        break;
+      }
+      total += read;
+    }
+    return total - total % frameSize;
+  }
+
+  private static void readFully(InputStream input, byte[] buffer, int length) throws IOException {
+    int total = 0;
+    while (total < length) {
+      int read = input.read(buffer, total, length - total);
+      if (read == -1) {
+        throw new EOFException("Unexpected end of WAV file");
+      }
+      total += read;
+    }
+  }
+
+  private static void skipFully(InputStream input, long length) throws IOException {
+    long remaining = length;
+    while (remaining > 0) {
+      long skipped = input.skip(remaining);
+      if (skipped <= 0) {
+        // skip may return 0 before the end, fall back to reading a single byte
+        if (input.read() == -1) {
+          throw new EOFException("Unexpected end of WAV file");
+        }
+        skipped = 1;
+      }
+      remaining -= skipped;
+    }
+  }
+
+  private static boolean hasId(byte[] buffer, int offset, byte[] id) {
+    for (int i = 0; i < id.length; i++) {
+      if (buffer[offset + i] != id[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static int readShort(byte[] buffer, int offset) {
+    return (buffer[offset] & 0xFF) | (buffer[offset + 1] & 0xFF) << 8;
+  }
+
+  private static int readInt(byte[] buffer, int offset) {
+    return (buffer[offset] & 0xFF)
+        | (buffer[offset + 1] & 0xFF) << 8
+        | (buffer[offset + 2] & 0xFF) << 16
+        | (buffer[offset + 3] & 0xFF) << 24;
+  }
+
+  public static class WavData {
+
+    public final float[] data;
+    public final int sampleRate;
+
+    public WavData(float[] data, int sampleRate) {
+      this.data = data;
+      this.sampleRate = sampleRate;
+    }
+  }
+}
\ No newline at end of file
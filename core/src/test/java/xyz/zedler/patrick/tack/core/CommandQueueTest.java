@@ -0,0 +1,107 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class CommandQueueTest {
+
+  private static final int CAPACITY = 256;
+
+  @Test
+  public void drain_appliesInOrder() {
+    CommandQueue queue = new CommandQueue();
+    Object payload = new Object();
+    assertTrue(queue.offer(1, 0.5f, null));
+    assertTrue(queue.offer(2, 1.5f, payload));
+    assertTrue(queue.offer(3, 2.5f, null));
+    List<Object[]> commands = new ArrayList<>();
+    assertEquals(3, queue.drain((type, value, p) -> commands.add(new Object[]{type, value, p})));
+    assertEquals(3, commands.size());
+    for (int i = 0; i < 3; i++) {
+      assertEquals(i + 1, commands.get(i)[0]);
+      assertEquals(i + 0.5f, commands.get(i)[1]);
+    }
+    assertNull(commands.get(0)[2]);
+    assertEquals(payload, commands.get(1)[2]);
+    assertEquals(0, queue.drain((type, value, p) -> commands.add(null)));
+    assertEquals(3, commands.size());
+  }
+
+  @Test
+  public void offer_rejectsWhenFull() {
+    CommandQueue queue = new CommandQueue();
+    for (int i = 0; i < CAPACITY; i++) {
+      assertTrue(queue.offer(i, 0, null));
+    }
+    assertFalse(queue.offer(CAPACITY, 0, null));
+    int[] expected = {0};
+    assertEquals(CAPACITY, queue.drain((type, value, payload) -> {
+      assertEquals(expected[0]++, type);
+    }));
+    // wrapped around, the ring is empty again
+    assertTrue(queue.offer(CAPACITY, 0, null));
+    assertEquals(1, queue.drain((type, value, payload) -> assertEquals(CAPACITY, type)));
+  }
+
+  @Test
+  public void concurrentProducers_keepOrderPerProducer() throws InterruptedException {
+    CommandQueue queue = new CommandQueue();
+    int producerCount = 4;
+    int commandCount = 20000;
+    Thread[] producers = new Thread[producerCount];
+    for (int p = 0; p < producerCount; p++) {
+      int producer = p;
+      producers[p] = new Thread(() -> {
+        for (int i = 0; i < commandCount; i++) {
+          while (!queue.offer(producer, i, null)) {
+            Thread.yield();
+          }
+        }
+      });
+      producers[p].start();
+    }
+    int[] next = new int[producerCount];
+    int[] total = {0};
+    CommandQueue.CommandHandler handler = (type, value, payload) -> {
+      assertEquals(next[type]++, (int) value);
+      total[0]++;
+    };
+    while (total[0] < producerCount * commandCount) {
+      if (queue.drain(handler) == 0) {
+        Thread.yield();
+      }
+    }
+    for (Thread producer : producers) {
+      producer.join();
+    }
+    assertEquals(0, queue.drain(handler));
+    for (int count : next) {
+      assertEquals(commandCount, count);
+    }
+  }
+}
@@ -0,0 +1,85 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class PeriodGeneratorTest {
+
+  private static final int SAMPLE_RATE = 48000;
+  private static final long FRAMES_PER_MINUTE = 60L * SAMPLE_RATE * 100;
+
+  @Test
+  public void exactTempo_constantPeriods() {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(24000, generator.next(12000, 1));
+    }
+  }
+
+  @Test
+  public void fractionalTempo_noDrift() {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    int tempo = 13733;
+    int subdivisions = 3;
+    long denominator = (long) tempo * subdivisions;
+    long total = 0;
+    // about 40 hours of triplets
+    for (long tick = 1; tick <= 1_000_000; tick++) {
+      total += generator.next(tempo, subdivisions);
+      // every tick starts at its ideal position rounded down to a frame
+      long ideal = tick * FRAMES_PER_MINUTE / denominator;
+      assertEquals(ideal, total);
+    }
+  }
+
+  @Test
+  public void tempoChange_keepsFraction() {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    long total = 0;
+    for (int i = 0; i < 7; i++) {
+      total += generator.next(11100, 1);
+    }
+    double expected = 7 * (double) FRAMES_PER_MINUTE / 11100;
+    for (int i = 0; i < 1000; i++) {
+      total += generator.next(17300, 4);
+      expected += (double) FRAMES_PER_MINUTE / (17300 * 4);
+      assertTrue(Math.abs(expected - total) <= 1);
+    }
+  }
+
+  @Test
+  public void reset_dropsFraction() {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    int first = generator.next(13000, 1);
+    generator.next(13000, 1);
+    generator.reset();
+    assertEquals(first, generator.next(13000, 1));
+  }
+
+  @Test
+  public void invalidValues_clamped() {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    assertEquals(FRAMES_PER_MINUTE, generator.next(0, 0));
+  }
+}
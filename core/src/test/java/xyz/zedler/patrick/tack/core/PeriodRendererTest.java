@@ -0,0 +1,125 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import java.util.Arrays;
+import org.junit.Test;
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers.Layer;
+
+public class PeriodRendererTest {
+
+  private static final int BUFFER_SIZE = 256;
+
+  private final VoiceMixer voiceMixer = new VoiceMixer(4, 16);
+  private final PolyrhythmLayers layers = new PolyrhythmLayers();
+  private final PeriodRenderer renderer = new PeriodRenderer(voiceMixer, layers, BUFFER_SIZE);
+
+  @Test
+  public void tick_startsAtFirstFrame() {
+    CollectingSink sink = new CollectingSink(1000, Integer.MAX_VALUE);
+    assertEquals(1000, renderer.render(sink, new float[]{1, 1}, 0.5f, 1000, 0, 0));
+    assertEquals(0.5f, sink.data[0], 0);
+    assertEquals(0.5f, sink.data[1], 0);
+    for (int i = 2; i < 1000; i++) {
+      assertEquals(0, sink.data[i], 0);
+    }
+    // split at the buffer size
+    assertEquals(4, sink.writeCount);
+  }
+
+  @Test
+  public void mutedTick_keepsTails() {
+    float[] sound = new float[300];
+    Arrays.fill(sound, 1);
+    CollectingSink sink = new CollectingSink(400, Integer.MAX_VALUE);
+    renderer.render(sink, sound, 0.25f, 200, 0, 0);
+    renderer.render(sink, null, 0.25f, 200, 0, 0);
+    assertEquals(0.25f, sink.data[299], 0);
+    assertEquals(0, sink.data[300], 0);
+  }
+
+  @Test
+  public void pulses_startAtOffsets() {
+    layers.setLayers(new Layer[]{new Layer(3, new float[]{1})});
+    CollectingSink sink = new CollectingSink(1200 * 4, Integer.MAX_VALUE);
+    // three pulses against four ticks of 1200 frames, at 0, 1600 and 3200 frames
+    for (int tick = 0; tick < 4; tick++) {
+      int pulseCount = layers.collect(tick, 4, 1200);
+      renderer.render(sink, null, 0, 1200, pulseCount, 0.5f);
+    }
+    for (int i = 0; i < sink.data.length; i++) {
+      boolean isPulse = i == 0 || i == 1600 || i == 3200;
+      assertEquals("frame " + i, isPulse ? 0.5f : 0, sink.data[i], 0);
+    }
+  }
+
+  @Test
+  public void overlappingVoices_limited() {
+    float[] sound = new float[100];
+    Arrays.fill(sound, 1);
+    CollectingSink sink = new CollectingSink(400, Integer.MAX_VALUE);
+    for (int i = 0; i < 4; i++) {
+      renderer.render(sink, sound, 1, 10, 0, 0);
+    }
+    for (float sample : sink.data) {
+      assertTrue(Math.abs(sample) < 1);
+    }
+    assertTrue(sink.data[35] > SoftLimiter.limit(3));
+  }
+
+  @Test
+  public void closedSink_dropsRestOfPeriod() {
+    CollectingSink sink = new CollectingSink(1000, 2);
+    assertEquals(BUFFER_SIZE, renderer.render(sink, new float[]{1}, 1, 1000, 0, 0));
+    assertEquals(2, sink.writeCount);
+  }
+
+  private static class CollectingSink implements AudioSink {
+
+    final float[] data;
+    final int openWrites;
+    int position, writeCount;
+
+    /**
+     * @param openWrites number of writes until the sink is closed, including the last one
+     */
+    CollectingSink(int capacity, int openWrites) {
+      data = new float[capacity];
+      this.openWrites = openWrites;
+    }
+
+    @Override
+    public boolean write(@NonNull float[] data, int size) {
+      System.arraycopy(data, 0, this.data, position, size);
+      position += size;
+      writeCount++;
+      return writeCount < openWrites;
+    }
+
+    @Override
+    public int getPlaybackHeadPosition() {
+      return position;
+    }
+  }
+}
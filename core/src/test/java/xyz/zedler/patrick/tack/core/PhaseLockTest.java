@@ -0,0 +1,174 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import androidx.annotation.NonNull;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PhaseLockTest {
+
+  private static final int SAMPLE_RATE = 48000;
+  private static final int PERIOD_SIZE = 24000;
+  private static final int WARMUP_PERIODS = 4;
+  // 2 ms per period
+  private static final int CORRECTION_MAX = 96;
+
+  private FakeSink sink;
+  private long now;
+  private PhaseLock phaseLock;
+  private long framesWritten;
+
+  @Before
+  public void setUp() {
+    sink = new FakeSink();
+    now = 1000;
+    phaseLock = new PhaseLock(sink, () -> now, SAMPLE_RATE);
+    framesWritten = 0;
+  }
+
+  @Test
+  public void warmup_noCorrection() {
+    for (int i = 0; i < WARMUP_PERIODS; i++) {
+      assertFalse(phaseLock.isLocked());
+      // the start threshold of the sink is not reached yet, the phase is unstable
+      sink.queued = i * 1000;
+      assertEquals(0, nextCorrection(0));
+      assertEquals(0, phaseLock.getErrorNanos());
+    }
+    assertTrue(phaseLock.isLocked());
+  }
+
+  @Test
+  public void stablePhase_noCorrection() {
+    warmUp();
+    for (int i = 0; i < 100; i++) {
+      assertEquals(0, nextCorrection(0));
+    }
+    assertEquals(0, phaseLock.getErrorNanos());
+  }
+
+  @Test
+  public void lateTicks_correctedWithinBound() {
+    warmUp();
+    // 10 ms late from now on
+    assertEquals(72, nextCorrection(10));
+    assertEquals(10_000_000, phaseLock.getErrorNanos());
+    int correction = 0;
+    for (int i = 0; i < 20; i++) {
+      correction = nextCorrection(10);
+      assertTrue(correction <= CORRECTION_MAX);
+    }
+    assertEquals(CORRECTION_MAX, correction);
+    // short periods are changed by an eighth at most
+    assertEquals(400 / 8, phaseLock.getCorrection(framesWritten, now - 10, 400));
+  }
+
+  @Test
+  public void earlyTicks_negativeCorrection() {
+    warmUp();
+    sink.queued -= 480;
+    assertEquals(-72, nextCorrection(0));
+    assertEquals(-10_000_000, phaseLock.getErrorNanos());
+  }
+
+  @Test
+  public void measure_observesWithoutCorrection() {
+    for (int i = 0; i < WARMUP_PERIODS; i++) {
+      assertTrue(phaseLock.measure(framesWritten, now));
+    }
+    assertTrue(phaseLock.isLocked());
+    assertTrue(phaseLock.measure(framesWritten, now - 5));
+    assertEquals(5_000_000, phaseLock.getErrorNanos());
+  }
+
+  @Test
+  public void headUnavailable_skipped() {
+    sink.released = true;
+    for (int i = 0; i < WARMUP_PERIODS * 2; i++) {
+      assertFalse(phaseLock.measure(framesWritten, now));
+      assertEquals(0, phaseLock.getCorrection(framesWritten, now, PERIOD_SIZE));
+    }
+    // unavailable positions are not counted as warmup periods
+    assertFalse(phaseLock.isLocked());
+  }
+
+  @Test
+  public void reset_restartsWarmup() {
+    warmUp();
+    phaseLock.reset();
+    assertFalse(phaseLock.isLocked());
+    // the new reference phase is measured, the changed phase is no error
+    sink.queued += 4800;
+    warmUp();
+    assertEquals(0, nextCorrection(0));
+  }
+
+  @Test
+  public void wrappedHead_keepsQueuedFrames() {
+    framesWritten = 0xFFFFFFFFL - 100;
+    warmUp();
+    framesWritten += 1000;
+    // the 32 bit playback head wraps around like the counter of AudioTrack
+    assertEquals(0, nextCorrection(0));
+  }
+
+  private void warmUp() {
+    for (int i = 0; i < WARMUP_PERIODS; i++) {
+      nextCorrection(0);
+    }
+  }
+
+  /**
+   * Writes a period and returns the correction of its size, the tick is played late by the given
+   * amount of milliseconds
+   */
+  private int nextCorrection(long latenessMs) {
+    sink.framesWritten = framesWritten;
+    int correction = phaseLock.getCorrection(framesWritten, now - latenessMs, PERIOD_SIZE);
+    framesWritten += PERIOD_SIZE;
+    now += PERIOD_SIZE * 1000L / SAMPLE_RATE;
+    return correction;
+  }
+
+  private static class FakeSink implements AudioSink {
+
+    long framesWritten;
+    int queued = 2000;
+    boolean released;
+
+    @Override
+    public boolean write(@NonNull float[] data, int size) {
+      return true;
+    }
+
+    @Override
+    public int getPlaybackHeadPosition() {
+      if (released) {
+        throw new IllegalStateException("track is released");
+      }
+      return (int) (framesWritten - queued);
+    }
+  }
+}
@@ -0,0 +1,101 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import androidx.annotation.NonNull;
+import java.util.Locale;
+
+/**
+ * Measures the render time of periods which can't be served by the period cache: long tick
+ * sounds overlapping the following ticks plus two polyrhythm layers. Run with
+ * ./gradlew :core:benchmark, the result is a rough guide as the JIT differs from ART.
+ */
+public class RenderBenchmark {
+
+  private static final int SAMPLE_RATE = 48000;
+  private static final int TEMPO_HUNDREDTHS = 24000;
+  private static final int SUBDIVISIONS = 4;
+  private static final int TICKS_PER_BAR = 4 * SUBDIVISIONS;
+  private static final int WARMUP_SECONDS = 120;
+  private static final int MEASURE_SECONDS = 600;
+
+  public static void main(String[] args) {
+    float[] tick = createSound(SAMPLE_RATE / 2, 880);
+    float[] pulse = createSound(SAMPLE_RATE / 4, 1320);
+    VoiceMixer voiceMixer = new VoiceMixer(VoiceMixer.POLYPHONY_MAX, SAMPLE_RATE / 200);
+    PolyrhythmLayers layers = new PolyrhythmLayers();
+    layers.setLayers(new PolyrhythmLayers.Layer[]{
+        new PolyrhythmLayers.Layer(3, pulse), new PolyrhythmLayers.Layer(5, pulse)
+    });
+    PeriodRenderer renderer = new PeriodRenderer(voiceMixer, layers, SAMPLE_RATE);
+    NullSink sink = new NullSink();
+
+    render(renderer, layers, sink, tick, WARMUP_SECONDS);
+    long startTime = System.nanoTime();
+    long frames = render(renderer, layers, sink, tick, MEASURE_SECONDS);
+    long duration = System.nanoTime() - startTime;
+
+    double nanosPerFrame = (double) duration / frames;
+    System.out.printf(
+        Locale.ROOT, "%d frames in %.1f ms, %.2f ns per frame, %.0fx real time%n",
+        frames, duration / 1e6, nanosPerFrame, 1e9 / SAMPLE_RATE / nanosPerFrame
+    );
+    // keeps the mixed output alive
+    System.out.printf(Locale.ROOT, "checksum %.3f%n", sink.sum);
+  }
+
+  private static long render(
+      PeriodRenderer renderer, PolyrhythmLayers layers, NullSink sink, float[] tick, int seconds
+  ) {
+    PeriodGenerator generator = new PeriodGenerator(SAMPLE_RATE);
+    long frames = 0;
+    for (long tickIndex = 0; frames < (long) seconds * SAMPLE_RATE; tickIndex++) {
+      int periodSize = generator.next(TEMPO_HUNDREDTHS, SUBDIVISIONS);
+      int pulseCount = layers.collect(tickIndex, TICKS_PER_BAR, periodSize);
+      frames += renderer.render(sink, tick, 0.8f, periodSize, pulseCount, 0.6f);
+    }
+    return frames;
+  }
+
+  private static float[] createSound(int length, double frequency) {
+    float[] sound = new float[length];
+    for (int i = 0; i < length; i++) {
+      double decay = Math.exp(-6.0 * i / length);
+      sound[i] = (float) (Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE) * decay);
+    }
+    return sound;
+  }
+
+  private static class NullSink implements AudioSink {
+
+    double sum;
+
+    @Override
+    public boolean write(@NonNull float[] data, int size) {
+      sum += data[size - 1];
+      return true;
+    }
+
+    @Override
+    public int getPlaybackHeadPosition() {
+      throw new IllegalStateException("not playing");
+    }
+  }
+}
@@ -0,0 +1,80 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+public class ResampleUtilTest {
+
+  @Test
+  public void sameRate_returnsInput() {
+    float[] data = new float[10];
+    assertSame(data, ResampleUtil.resample(data, 48000, 48000));
+    assertSame(data, ResampleUtil.pitch(data, 0));
+  }
+
+  @Test
+  public void length_scaledByFactor() {
+    float[] data = new float[44100];
+    assertEquals(48000, ResampleUtil.resample(data, 44100, 48000).length);
+    assertEquals(22050, ResampleUtil.resample(data, 44100, 22050).length);
+    // one octave up halves the length
+    assertEquals(22050, ResampleUtil.pitch(data, 1200).length);
+    assertEquals(0.5, ResampleUtil.getPitchFactor(1200), 1e-12);
+    assertEquals(2, ResampleUtil.getPitchFactor(-1200), 1e-12);
+  }
+
+  @Test
+  public void sine_keepsFrequencyAndAmplitude() {
+    int rateFrom = 44100;
+    int rateTo = 48000;
+    double frequency = 1000;
+    float[] data = new float[rateFrom];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (float) Math.sin(2 * Math.PI * frequency * i / rateFrom);
+    }
+    float[] output = ResampleUtil.resample(data, rateFrom, rateTo);
+    // edges are skipped, the kernel reaches beyond the data there
+    for (int i = 1000; i < output.length - 1000; i++) {
+      double expected = Math.sin(2 * Math.PI * frequency * i / rateTo);
+      assertEquals(expected, output[i], 0.01);
+    }
+  }
+
+  @Test
+  public void downsampling_removesFrequenciesAboveNyquist() {
+    int rateFrom = 48000;
+    float[] data = new float[rateFrom];
+    for (int i = 0; i < data.length; i++) {
+      // 20 kHz is above the nyquist frequency of 12 kHz after halving the length
+      data[i] = (float) Math.sin(2 * Math.PI * 20000 * i / rateFrom);
+    }
+    float[] output = ResampleUtil.resample(data, 0.5);
+    double sum = 0;
+    for (int i = 1000; i < output.length - 1000; i++) {
+      sum += output[i] * output[i];
+    }
+    double rms = Math.sqrt(sum / (output.length - 2000));
+    assertEquals(0, rms, 0.01);
+  }
+}
@@ -0,0 +1,133 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class TempoRampTest {
+
+  private static final int SAMPLE_RATE = 48000;
+
+  private final TempoRamp tempoRamp = new TempoRamp(SAMPLE_RATE, 1, 600);
+
+  @Test
+  public void steps_perBars() {
+    Settings settings = new Settings(5, 2, 0, true, TempoRamp.UNIT_BARS, TempoRamp.CURVE_STEP);
+    tempoRamp.start(12000);
+    // 4 ticks per bar, the amount is added every 2 bars
+    for (int tick = 0; tick < 24; tick++) {
+      assertEquals(12000 + 500 * (tick / 8), tempoRamp.getTempoHundredths(settings));
+      tempoRamp.advance(SAMPLE_RATE / 2);
+    }
+  }
+
+  @Test
+  public void steps_lastStepSkippedAtLimit() {
+    Settings settings = new Settings(7, 1, 130, true, TempoRamp.UNIT_BARS, TempoRamp.CURVE_STEP);
+    assertEquals(12000, tempoRamp.getTempoHundredths(settings, 12000, 0.5));
+    assertEquals(12700, tempoRamp.getTempoHundredths(settings, 12000, 1));
+    assertEquals(12700, tempoRamp.getTempoHundredths(settings, 12000, 5));
+  }
+
+  @Test
+  public void linear_perSeconds() {
+    Settings settings = new Settings(
+        10, 4, 0, false, TempoRamp.UNIT_SECONDS, TempoRamp.CURVE_LINEAR
+    );
+    tempoRamp.start(12000);
+    tempoRamp.advance(SAMPLE_RATE * 2);
+    // halfway through the interval
+    assertEquals(11500, tempoRamp.getTempoHundredths(settings));
+  }
+
+  @Test
+  public void exponential_ratioPerInterval() {
+    Settings settings = new Settings(
+        60, 1, 0, true, TempoRamp.UNIT_MINUTES, TempoRamp.CURVE_EXPONENTIAL
+    );
+    assertEquals(12000, tempoRamp.getTempoHundredths(settings, 6000, 1));
+    assertEquals(24000, tempoRamp.getTempoHundredths(settings, 6000, 2));
+  }
+
+  @Test
+  public void bounds_withoutLimit() {
+    Settings increase = new Settings(100, 1, 0, true, TempoRamp.UNIT_BARS, TempoRamp.CURVE_LINEAR);
+    assertEquals(60000, tempoRamp.getTempoHundredths(increase, 55000, 3));
+    Settings decrease = new Settings(100, 1, 0, false, TempoRamp.UNIT_BARS, TempoRamp.CURVE_LINEAR);
+    assertEquals(100, tempoRamp.getTempoHundredths(decrease, 5000, 3));
+  }
+
+  private static class Settings implements TempoRamp.Settings {
+
+    final int amount, interval, limit, unit, curve;
+    final boolean increase;
+
+    Settings(int amount, int interval, int limit, boolean increase, int unit, int curve) {
+      this.amount = amount;
+      this.interval = interval;
+      this.limit = limit;
+      this.increase = increase;
+      this.unit = unit;
+      this.curve = curve;
+    }
+
+    @Override
+    public int getIncrementalAmount() {
+      return amount;
+    }
+
+    @Override
+    public int getIncrementalInterval() {
+      return interval;
+    }
+
+    @Override
+    public int getIncrementalLimit() {
+      return limit;
+    }
+
+    @Override
+    public boolean isIncrementalIncrease() {
+      return increase;
+    }
+
+    @Override
+    public int getRampUnit() {
+      return unit;
+    }
+
+    @Override
+    public int getRampCurve() {
+      return curve;
+    }
+
+    @Override
+    public int getBeatsCount() {
+      return 4;
+    }
+
+    @Override
+    public int getSubdivisionsCount() {
+      return 1;
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import org.junit.Test;
+
+public class VoiceMixerTest {
+
+  private static final int FADE_FRAMES = 8;
+
+  @Test
+  public void overlappingVoices_summed() {
+    VoiceMixer mixer = new VoiceMixer(4, FADE_FRAMES);
+    mixer.start(createSound(10), 0.5f);
+    float[] buffer = new float[20];
+    mixer.mix(buffer, 5);
+    mixer.start(createSound(10), 0.25f);
+    mixer.mix(buffer, 5, 15);
+    assertEquals(0.5f, buffer[4], 0);
+    assertEquals(0.75f, buffer[5], 0);
+    assertEquals(0.25f, buffer[10], 0);
+    assertEquals(0, buffer[15], 0);
+    assertTrue(mixer.isIdle());
+  }
+
+  @Test
+  public void fade_startsAtVoiceGain() {
+    VoiceMixer mixer = new VoiceMixer(1, FADE_FRAMES);
+    mixer.start(createSound(100), 0.5f);
+    float[] buffer = new float[FADE_FRAMES];
+    mixer.mix(buffer, 1);
+    // cuts the first voice, it fades out from its gain within the fade duration
+    mixer.start(new float[0], 1);
+    mixer.start(createSound(100), 0);
+    mixer.mix(buffer, FADE_FRAMES);
+    for (int i = 0; i < FADE_FRAMES; i++) {
+      assertEquals(0.5f * (FADE_FRAMES - i) / FADE_FRAMES, buffer[i], 1e-6);
+    }
+  }
+
+  @Test
+  public void removedVoice_keepsFadeOfLaterVoices() {
+    VoiceMixer mixer = new VoiceMixer(1, FADE_FRAMES);
+    float[] buffer = new float[FADE_FRAMES];
+    mixer.start(createSound(100), 4);
+    mixer.mix(buffer, 1);
+    // the first voice fades out with a steep step of 0.5 per frame
+    mixer.start(createSound(100), 0.5f);
+    mixer.mix(buffer, 4);
+    // the second voice fades out with a step of 0.0625 per frame
+    mixer.start(createSound(100), 1);
+    // the first voice ends and is removed while the second one is still fading
+    mixer.mix(buffer, 4);
+    mixer.mix(buffer, FADE_FRAMES);
+    for (int i = 0; i < 4; i++) {
+      assertEquals(1 + 0.0625f * (4 - i), buffer[i], 1e-6);
+    }
+    for (int i = 4; i < FADE_FRAMES; i++) {
+      assertEquals(1, buffer[i], 0);
+    }
+  }
+
+  @Test
+  public void fullPool_releasesOldestVoice() {
+    VoiceMixer mixer = new VoiceMixer(1, FADE_FRAMES);
+    float[] buffer = new float[FADE_FRAMES];
+    // every start fades out the previous voice, more fading voices than the pool holds
+    for (int i = 0; i < 40; i++) {
+      mixer.start(createSound(100), 0.1f);
+    }
+    mixer.mix(buffer, FADE_FRAMES);
+    // no fade is cut, the first frame holds the full gain of all fading voices
+    assertEquals(0.1f * 40, buffer[0], 1e-4);
+    // on the last frame of the fades, each fading voice plays an eighth of its gain
+    assertEquals(0.1f + 39 * 0.1f / FADE_FRAMES, buffer[FADE_FRAMES - 1], 1e-4);
+    mixer.reset();
+    assertTrue(mixer.isIdle());
+  }
+
+  private static float[] createSound(int length) {
+    float[] sound = new float[length];
+    Arrays.fill(sound, 1);
+    return sound;
+  }
+}
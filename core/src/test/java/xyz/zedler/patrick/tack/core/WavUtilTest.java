@@ -0,0 +1,116 @@
+/*
+ * This file is part of Tack Android.
+ *
+ * Tack Android is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * Tack Android is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with Tack Android. If not, see http://www.gnu.org/licenses/.
+ *
+ * Copyright (c) 2020-2025 by Patrick Zedler
+ */
+
+package xyz.zedler.patrick.tack.core;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import xyz.zedler.patrick.tack.core.WavUtil.WavData;
+
+public class WavUtilTest {
+
+  @Test
+  public void writeAndRead_roundTrip() throws IOException {
+    float[] data = new float[100_000];
+    for (int i = 0; i < data.length; i++) {
+      data[i] = (float) Math.sin(i * 0.01);
+    }
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    WavUtil.writeWav(output, data, 44100);
+    WavData wav = WavUtil.readWav(new ByteArrayInputStream(output.toByteArray()));
+    assertEquals(44100, wav.sampleRate);
+    assertArrayEquals(data, wav.data, 0);
+  }
+
+  @Test
+  public void pcm16Stereo_mixedDown() throws IOException {
+    ByteBuffer samples = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+    samples.putShort((short) 16384).putShort((short) 0);
+    samples.putShort((short) -32768).putShort((short) -32768);
+    WavData wav = WavUtil.readWav(createWav(1, 2, 48000, 16, samples.array(), 8));
+    assertArrayEquals(new float[]{0.25f, -1}, wav.data, 0);
+  }
+
+  @Test
+  public void maxDuration_stopsDecoding() throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    WavUtil.writeWav(output, new float[48000 * 5], 48000);
+    WavData wav = WavUtil.readWav(new ByteArrayInputStream(output.toByteArray()), 2000);
+    assertEquals(96000, wav.data.length);
+  }
+
+  @Test
+  public void hugeDeclaredSize_keepsDecodedPart() throws IOException {
+    // claims 2 GB of samples, but the file ends after 3 frames
+    byte[] samples = {(byte) 128, 0, -1};
+    WavData wav = WavUtil.readWav(createWav(1, 1, 48000, 8, samples, Integer.MAX_VALUE - 1));
+    assertEquals(3, wav.data.length);
+    assertEquals(0, wav.data[0], 0);
+    assertEquals(-1, wav.data[1], 0);
+  }
+
+  @Test
+  public void invalidFormat_rejected() {
+    byte[] samples = new byte[4];
+    assertThrows(IOException.class, () -> WavUtil.readWav(createWav(1, 1, 0, 16, samples, 4)));
+    assertThrows(
+        IOException.class, () -> WavUtil.readWav(createWav(1, 1, 1_000_000, 16, samples, 4))
+    );
+    assertThrows(IOException.class, () -> WavUtil.readWav(createWav(1, 0, 48000, 16, samples, 4)));
+    assertThrows(IOException.class, () -> WavUtil.readWav(createWav(1, 33, 48000, 16, samples, 4)));
+    // compressed formats like ADPCM are not supported
+    assertThrows(IOException.class, () -> WavUtil.readWav(createWav(2, 1, 48000, 4, samples, 4)));
+    byte[] header = "RIFX0000WAVE".getBytes(StandardCharsets.US_ASCII);
+    assertThrows(IOException.class, () -> WavUtil.readWav(new ByteArrayInputStream(header)));
+  }
+
+  /**
+   * @param dataSize declared size of the data chunk, may differ from the actual samples
+   */
+  private static InputStream createWav(
+      int format, int channels, int sampleRate, int bitsPerSample, byte[] samples, int dataSize
+  ) {
+    ByteBuffer buffer = ByteBuffer.allocate(44 + samples.length).order(ByteOrder.LITTLE_ENDIAN);
+    buffer.put("RIFF".getBytes(StandardCharsets.US_ASCII));
+    buffer.putInt(36 + samples.length);
+    buffer.put("WAVE".getBytes(StandardCharsets.US_ASCII));
+    buffer.put("fmt ".getBytes(StandardCharsets.US_ASCII));
+    buffer.putInt(16);
+    buffer.putShort((short) format);
+    buffer.putShort((short) channels);
+    buffer.putInt(sampleRate);
+    buffer.putInt(sampleRate * channels * bitsPerSample / 8);
+    buffer.putShort((short) (channels * bitsPerSample / 8));
+    buffer.putShort((short) bitsPerSample);
+    buffer.put("data".getBytes(StandardCharsets.US_ASCII));
+    buffer.putInt(dataSize);
+    buffer.put(samples);
+    return new ByteArrayInputStream(buffer.array());
+  }
+}
@@ -82,6 +82,7 @@ android {
 }
 
 dependencies {
+  implementation(project(":core"))
   implementation(platform(libs.compose.bom))
   implementation(libs.preference)
   implementation(libs.lifecycle.service)
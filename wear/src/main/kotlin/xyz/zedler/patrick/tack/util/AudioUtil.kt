@@ -26,7 +26,6 @@ import android.media.AudioFormat
 import android.media.AudioManager
 import android.media.AudioTrack
 import android.media.audiofx.LoudnessEnhancer
-import android.os.Build
 import android.os.Handler
 import android.os.HandlerThread
 import android.os.SystemClock
@@ -35,12 +34,14 @@ import androidx.annotation.RawRes
 import xyz.zedler.patrick.tack.Constants.Sound
 import xyz.zedler.patrick.tack.Constants.TickType
 import xyz.zedler.patrick.tack.R
-import java.io.ByteArrayOutputStream
-import java.io.InputStream
-import java.nio.ByteBuffer
-import java.nio.ByteOrder
-import java.nio.charset.StandardCharsets
-import kotlin.math.max
+import xyz.zedler.patrick.tack.core.AudioSink
+import xyz.zedler.patrick.tack.core.Clock
+import xyz.zedler.patrick.tack.core.PeriodRenderer
+import xyz.zedler.patrick.tack.core.PhaseLock
+import xyz.zedler.patrick.tack.core.PolyrhythmLayers
+import xyz.zedler.patrick.tack.core.ResampleUtil
+import xyz.zedler.patrick.tack.core.VoiceMixer
+import xyz.zedler.patrick.tack.core.WavUtil
 
 class AudioUtil(
   private val context: Context,
@@ -49,23 +50,47 @@ class AudioUtil(
 
   companion object {
     private const val TAG = "AudioUtil"
-    private const val SAMPLE_RATE_IN_HZ = 48000
-    private const val SILENCE_CHUNK_SIZE = 8000
-    private const val DATA_CHUNK_SIZE = 8
+    const val SAMPLE_RATE_IN_HZ = 48000
+    private const val RENDER_BUFFER_SIZE = 8000
+    private const val POLYPHONY = 4
+    // fade of voices exceeding the polyphony in milliseconds
+    private const val VOICE_FADE_DURATION = 5
+    // pitch of the accents in cents
+    private const val PITCH_HIGH = 1200
+    private const val PITCH_LOW = -1200
   }
 
   private val audioManager = context.getSystemService(Context.AUDIO_SERVICE) as AudioManager
-  private val silence = FloatArray(SILENCE_CHUNK_SIZE)
-  private val dataMarker = "data".toByteArray(StandardCharsets.US_ASCII)
+  private val audioSink = object : AudioSink {
+    override fun write(data: FloatArray, size: Int): Boolean {
+      if (!playing) return false
+      writeAudio(data, size)
+      return playing
+    }
+
+    override fun getPlaybackHeadPosition(): Int {
+      return audioTrack?.playbackHeadPosition ?: throw IllegalStateException("No AudioTrack")
+    }
+  }
+  private val phaseLock = PhaseLock(
+    audioSink, Clock { SystemClock.uptimeMillis() }, SAMPLE_RATE_IN_HZ
+  )
+  // only accessed by the audio thread, same mixing and limiting as on the phone
+  private val voiceMixer = VoiceMixer(POLYPHONY, SAMPLE_RATE_IN_HZ * VOICE_FADE_DURATION / 1000)
+  private val periodRenderer = PeriodRenderer(
+    voiceMixer, PolyrhythmLayers(), RENDER_BUFFER_SIZE
+  )
 
   private var audioThread: HandlerThread? = null
   private var audioHandler: Handler? = null
   private var audioTrack: AudioTrack? = null
   private var loudnessEnhancer: LoudnessEnhancer? = null
-  private var tickNormal: FloatArray? = null
-  private var tickStrong: FloatArray? = null
-  private var tickSub: FloatArray? = null
+  // replaced as a whole when the sound changes, muted ticks have no sound
+  @Volatile
+  private var tickSounds: Map<String, FloatArray> = emptyMap()
+  @Volatile
   private var playing = false
+  private var framesWritten = 0L
   var gain = 0
     set(value) {
       field = value
@@ -102,6 +127,9 @@ class AudioUtil(
     resetHandlersIfRequired()
 
     playing = true
+    framesWritten = 0
+    phaseLock.reset()
+    audioHandler?.post { voiceMixer.reset() }
     audioTrack = getTrack().apply {
       try {
         loudnessEnhancer = LoudnessEnhancer(audioSessionId).apply {
@@ -160,154 +188,84 @@ class AudioUtil(
   }
 
   fun setSound(sound: String) {
-    var pitchStrong = Pitch.HIGH
-    var pitchSub = Pitch.LOW
+    var pitchStrong = PITCH_HIGH
+    var pitchSub = PITCH_LOW
     val (resIdNormal, resIdStrong, resIdSub) = when (sound) {
       Sound.WOOD -> Triple(R.raw.wood, R.raw.wood, R.raw.mechanical_knock).also {
-        pitchSub = Pitch.NORMAL
+        pitchSub = 0
       }
       Sound.MECHANICAL -> Triple(
         R.raw.mechanical_tick, R.raw.mechanical_ding, R.raw.mechanical_knock
       ).also {
-        pitchStrong = Pitch.NORMAL
-        pitchSub = Pitch.NORMAL
+        pitchStrong = 0
+        pitchSub = 0
       }
       Sound.BEATBOXING_1 -> Triple(
         R.raw.beatbox_snare1, R.raw.beatbox_kick1, R.raw.beatbox_hihat1
       ).also {
-        pitchStrong = Pitch.NORMAL
-        pitchSub = Pitch.NORMAL
+        pitchStrong = 0
+        pitchSub = 0
       }
       Sound.BEATBOXING_2 -> Triple(
         R.raw.beatbox_snare2, R.raw.beatbox_kick2, R.raw.beatbox_hihat2
       ).also {
-        pitchStrong = Pitch.NORMAL
-        pitchSub = Pitch.NORMAL
+        pitchStrong = 0
+        pitchSub = 0
       }
       Sound.HANDS -> Triple(R.raw.hands_hit, R.raw.hands_clap, R.raw.hands_snap).also {
-        pitchStrong = Pitch.NORMAL
-        pitchSub = Pitch.NORMAL
+        pitchStrong = 0
+        pitchSub = 0
       }
       Sound.FOLDING -> Triple(R.raw.folding_knock, R.raw.folding_fold, R.raw.folding_tap).also {
-        pitchStrong = Pitch.NORMAL
-        pitchSub = Pitch.NORMAL
+        pitchStrong = 0
+        pitchSub = 0
       }
       else -> Triple(R.raw.sine, R.raw.sine, R.raw.sine)
     }
-    tickNormal = loadAudio(resIdNormal)
-    tickStrong = loadAudio(resIdStrong, pitchStrong)
-    tickSub = loadAudio(resIdSub, pitchSub)
+    tickSounds = mapOf(
+      TickType.NORMAL to loadAudio(resIdNormal),
+      TickType.STRONG to loadAudio(resIdStrong, pitchStrong),
+      TickType.SUB to loadAudio(resIdSub, pitchSub)
+    )
   }
 
-  fun writeTickPeriod(tick: MetronomeUtil.Tick, tempo: Int, subdivisionCount: Int) {
-    val periodSize = 60 * SAMPLE_RATE_IN_HZ / tempo / subdivisionCount
-    val expectedTime = SystemClock.elapsedRealtime()
+  /**
+   * @param tickTime   uptime in milliseconds at which the tick is scheduled
+   * @param periodSize size of the tick period in frames from the period generator
+   */
+  fun writeTickPeriod(tick: MetronomeUtil.Tick, tickTime: Long, periodSize: Int) {
     audioHandler?.post {
-      var periodSizeTrimmed = periodSize
-      if (tick.subdivision == 1) {
-        val currentTime = SystemClock.elapsedRealtime()
-        val delay = currentTime - expectedTime
-        if (delay > 1) {
-          val trimSize = delay.coerceAtLeast(10) * (SAMPLE_RATE_IN_HZ / 1000)
-          periodSizeTrimmed = max(0, periodSize - trimSize).toInt()
-        }
-      }
-      val tickSound = if (muted) silence else getTickSound(tick.type) ?: return@post
-      val sizeWritten = writeNextAudioData(tickSound, periodSizeTrimmed, 0)
-      writeSilenceUntilPeriodFinished(sizeWritten, periodSizeTrimmed)
+      // same phase lock as on the phone instead of trimming whole milliseconds
+      val periodSizeCorrected =
+        periodSize - phaseLock.getCorrection(framesWritten, tickTime, periodSize)
+      val tickSound = if (muted) null else tickSounds[tick.type]
+      periodRenderer.render(audioSink, tickSound, 1f, periodSizeCorrected, 0, 0f)
     }
   }
 
-  private fun writeSilenceUntilPeriodFinished(previousSizeWritten: Int, periodSize: Int) {
-    var sizeWritten = previousSizeWritten
-    while (sizeWritten < periodSize) {
-      sizeWritten += writeNextAudioData(silence, periodSize, sizeWritten)
-    }
-  }
-
-  private fun writeNextAudioData(data: FloatArray, periodSize: Int, sizeWritten: Int): Int {
-    val size = minOf(data.size, periodSize - sizeWritten)
-    if (playing) {
-      writeAudio(data, size)
-    }
-    return size
-  }
-
-  private fun getTickSound(tickType: String): FloatArray? {
-    return when (tickType) {
-      TickType.STRONG -> tickStrong
-      TickType.SUB -> tickSub
-      TickType.MUTED -> silence
-      else -> tickNormal
-    }
-  }
-
-  private fun loadAudio(@RawRes resId: Int, pitch: Pitch = Pitch.NORMAL): FloatArray {
+  private fun loadAudio(@RawRes resId: Int, pitch: Int = 0): FloatArray {
     return context.resources.openRawResource(resId).use {
-      adjustPitch(readDataFromWavFloat(it), pitch)
-    }
-  }
-
-  private fun adjustPitch(originalData: FloatArray, pitch: Pitch): FloatArray {
-    return when (pitch) {
-      Pitch.HIGH -> originalData.filterIndexed { index, _ -> index % 2 == 0 }.toFloatArray()
-      Pitch.LOW -> originalData.flatMap { listOf(it, it) }.toFloatArray()
-      else -> originalData
+      val wav = WavUtil.readWav(it)
+      // pitch and sample rate conversion in a single pass, like on the phone
+      val factor = SAMPLE_RATE_IN_HZ.toDouble() / wav.sampleRate *
+        ResampleUtil.getPitchFactor(pitch)
+      if (factor == 1.0) wav.data else ResampleUtil.resample(wav.data, factor)
     }
   }
 
   private fun writeAudio(data: FloatArray, size: Int) {
     try {
-      audioTrack?.write(data, 0, size, AudioTrack.WRITE_BLOCKING)?.takeIf { it < 0 }?.let {
+      val result = audioTrack?.write(data, 0, size, AudioTrack.WRITE_BLOCKING) ?: return
+      if (result < 0) {
         stop()
-        throw RuntimeException("Error code: $it")
+        throw RuntimeException("Error code: $result")
       }
+      framesWritten += result
     } catch (e: RuntimeException) {
       Log.e(TAG, "writeAudio: failed to play audion data", e)
     }
   }
 
-  private fun readDataFromWavFloat(input: InputStream): FloatArray {
-    val content = if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.TIRAMISU) {
-      input.readBytes()
-    } else {
-      readInputStreamToBytes(input)
-    }
-    val indexOfDataMarker = getIndexOfDataMarker(content)
-    val startOfSound = indexOfDataMarker + DATA_CHUNK_SIZE
-    return ByteBuffer.wrap(content, startOfSound, content.size - startOfSound).apply {
-      order(ByteOrder.LITTLE_ENDIAN)
-    }.asFloatBuffer().let {
-      FloatArray(it.remaining()).also { data -> it.get(data) }
-    }
-  }
-
-  private fun readInputStreamToBytes(input: InputStream): ByteArray {
-    return ByteArrayOutputStream().use { buffer ->
-      val data = ByteArray(4096)
-      var read: Int
-      while (input.read(data).also { read = it } != -1) {
-        buffer.write(data, 0, read)
-      }
-      buffer.toByteArray()
-    }
-  }
-
-  private fun getIndexOfDataMarker(array: ByteArray): Int {
-    if (dataMarker.isEmpty()) {
-      return 0
-    }
-    outer@ for (i in 0..array.size - dataMarker.size) {
-      for (j in dataMarker.indices) {
-        if (array[i + j] != dataMarker[j]) {
-          continue@outer
-        }
-      }
-      return i
-    }
-    return -1
-  }
-
   private fun getTrack(): AudioTrack {
     val audioFormat = AudioFormat.Builder()
       .setEncoding(AudioFormat.ENCODING_PCM_FLOAT)
@@ -339,8 +297,4 @@ class AudioUtil(
       .setOnAudioFocusChangeListener(this)
       .build()
   }
-
-  private enum class Pitch {
-    NORMAL, HIGH, LOW
-  }
 }
\ No newline at end of file
@@ -23,9 +23,11 @@ import android.content.Context
 import android.os.Handler
 import android.os.HandlerThread
 import android.os.Looper
+import android.os.SystemClock
 import android.util.Log
 import xyz.zedler.patrick.tack.Constants
 import xyz.zedler.patrick.tack.Constants.TickType
+import xyz.zedler.patrick.tack.core.PeriodGenerator
 import xyz.zedler.patrick.tack.presentation.state.MainState
 
 class MetronomeUtil(
@@ -39,6 +41,7 @@ class MetronomeUtil(
 
   private val audioUtil = AudioUtil(context, ::stop)
   private val hapticUtil = HapticUtil(context)
+  private val periodGenerator = PeriodGenerator(AudioUtil.SAMPLE_RATE_IN_HZ)
 
   private var tickThread: HandlerThread? = null
   private var callbackThread: HandlerThread? = null
@@ -130,16 +133,8 @@ class MetronomeUtil(
     isPlaying = true
     audioUtil.play()
     tickIndex = 0
-    tickHandler?.post(object : Runnable {
-      override fun run() {
-        if (isPlaying) {
-          tickHandler?.postDelayed(this, getInterval() / getSubdivisionsCount())
-          val tick = performTick()
-          audioUtil.writeTickPeriod(tick, tempo, getSubdivisionsCount())
-          tickIndex++
-        }
-      }
-    })
+    periodGenerator.reset()
+    postTicks()
 
     listeners.forEach { it.onMetronomeStart() }
     Log.i(TAG, "start: started metronome handler")
@@ -221,8 +216,6 @@ class MetronomeUtil(
     )
   }
 
-  fun getInterval(): Long = (1000 * 60 / tempo).toLong()
-
   private fun setSound(sound: String) {
     audioUtil.setSound(sound)
   }
@@ -250,14 +243,41 @@ class MetronomeUtil(
     audioUtil.gain = gain
   }
 
-  private fun performTick(): Tick {
+  /**
+   * Like on the phone, deadlines are derived from the frames scheduled since the start, so the
+   * execution time of a tick and the latency of the looper never accumulate
+   */
+  private fun postTicks() {
+    val startTime = SystemClock.uptimeMillis()
+    val sampleRate = AudioUtil.SAMPLE_RATE_IN_HZ
+    tickHandler?.post(object : Runnable {
+      private var framesScheduled = 0L
+
+      override fun run() {
+        if (isPlaying) {
+          val tickTime = startTime + framesScheduled * 1000 / sampleRate
+          val tick = performTick(tickTime)
+          val periodSize = periodGenerator.next(tempo * 100, getSubdivisionsCount())
+          framesScheduled += periodSize
+          tickHandler?.postAtTime(this, startTime + framesScheduled * 1000 / sampleRate)
+          audioUtil.writeTickPeriod(tick, tickTime, periodSize)
+          tickIndex++
+        }
+      }
+    })
+  }
+
+  /**
+   * @param tickTime uptime in milliseconds at which the tick is scheduled
+   */
+  private fun performTick(tickTime: Long): Tick {
     val tick = Tick(tickIndex, getCurrentBeat(), getCurrentSubdivision(), getCurrentTickType())
 
-    latencyHandler?.postDelayed({
+    latencyHandler?.postAtTime({
       listeners.forEach { it.onMetronomePreTick(tick) }
-    }, maxOf(0, latency - Constants.BEAT_ANIM_OFFSET))
+    }, tickTime + maxOf(0, latency - Constants.BEAT_ANIM_OFFSET))
 
-    latencyHandler?.postDelayed({
+    latencyHandler?.postAtTime({
       if (beatModeVibrate || alwaysVibrate) {
         when (tick.type) {
           TickType.STRONG -> hapticUtil.heavyClick()
@@ -267,12 +287,12 @@ class MetronomeUtil(
         }
       }
       listeners.forEach { it.onMetronomeTick(tick) }
-    }, latency)
+    }, tickTime + latency)
 
     if (flashScreen) {
-      flashHandler?.postDelayed({
+      flashHandler?.postAtTime({
         listeners.forEach { it.onFlashScreenEnd() }
-      }, latency + Constants.FLASH_SCREEN_DURATION)
+      }, tickTime + latency + Constants.FLASH_SCREEN_DURATION)
     }
     return tick
   }